@@ -0,0 +1,21 @@
+package com.tonidotpy.minesweeper;
+
+// Board size and mines written as "ROWSxCOLSxMINES", the format of the benchmark parameters
+final class BoardSpec {
+    final int rows, cols, mines;
+
+    private BoardSpec(int rows, int cols, int mines) {
+        this.rows  = rows;
+        this.cols  = cols;
+        this.mines = mines;
+    }
+
+    static BoardSpec Parse(String spec) {
+        String[] parts = spec.split("x");
+        return new BoardSpec(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+    }
+
+    Board NewBoard(long seed) {
+        return new Board(rows, cols, mines, seed);
+    }
+}
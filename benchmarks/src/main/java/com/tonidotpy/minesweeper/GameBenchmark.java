@@ -0,0 +1,44 @@
+package com.tonidotpy.minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Whole games played by the Bot on a reused board, every game with a new layout
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameBenchmark {
+    // The Bot scans the whole board at every step, so the huge boards are left to the other benchmarks
+    @Param({"9x9x10", "16x16x40", "16x30x99", "100x100x1600"})
+    public String board;
+
+    private Board target;
+    private long seed;
+
+
+    @Setup
+    public void Setup() {
+        target = BoardSpec.Parse(board).NewBoard(0);
+    }
+
+
+    @Benchmark
+    public Board.Result randomPlay() {
+        target.Reset(++seed);
+        return new Bot(target, seed).Play();
+    }
+}
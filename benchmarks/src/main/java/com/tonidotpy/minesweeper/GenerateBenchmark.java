@@ -0,0 +1,72 @@
+package com.tonidotpy.minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Mine placement and neighbour counting, from beginner boards up to 10000x10000
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class GenerateBenchmark {
+    @Param({"9x9x10", "16x16x40", "16x30x99", "1000x1000x100000", "1000x1000x200000", "10000x10000x16000000"})
+    public String board;
+
+    private BoardSpec spec;
+    private Board target;
+    private byte[] mines;
+    private long seed;
+
+
+    @Setup(Level.Trial)
+    public void Setup() {
+        spec   = BoardSpec.Parse(board);
+        target = spec.NewBoard(1);
+        target.Generate(spec.rows / 2, spec.cols / 2);
+
+        // Layout with the mine bits only, copied back before every count
+        mines = target.getCells().clone();
+        for (int i = 0; i < mines.length; i++) {
+            mines[i] &= Board.MINE_BIT;
+        }
+    }
+
+
+    // Clears the board and places the mines of a new layout
+    @Benchmark
+    public Board placeMines() {
+        target.Reset(seed++);
+        target.PlaceMines(spec.rows / 2, spec.cols / 2);
+        return target;
+    }
+
+    // Copies a layout without counts back into the board and counts the near mines of every cell
+    @Benchmark
+    public Board calculateNearMines() {
+        System.arraycopy(mines, 0, target.getCells(), 0, mines.length);
+        target.CalculateNearMines();
+        return target;
+    }
+
+    // Full first click generation: placement and counting
+    @Benchmark
+    public Board generate() {
+        target.Reset(seed++);
+        target.Generate(spec.rows / 2, spec.cols / 2);
+        return target;
+    }
+}
@@ -0,0 +1,159 @@
+package com.tonidotpy.minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Flood fill and chording on generated boards. Before every invocation the cells changed by the move
+// are put back through Board.Apply. The move is the same every time, so it always changes the same
+// cells, recorded once per trial: the reset costs as much as the move, not the whole board.
+// The board lives in a state of its own, reached by the benchmarks only through the state that resets
+// it: JMH makes a separate instance of a state for each place it is injected, so a board kept in the
+// benchmark class, or also passed to the benchmark method, is never the one that gets reset
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class RevealBenchmark {
+    @State(Scope.Thread)
+    public static class Position {
+        @Param({"9x9x10", "16x16x40", "16x30x99", "1000x1000x100000", "1000x1000x200000", "10000x10000x16000000"})
+        public String board;
+
+        Board target;
+        int startRow, startCol;
+        int chordRow, chordCol;
+
+        // Cells changed by each move and their bytes before it
+        int[] propagated, chorded;
+        byte[] hidden, opened;
+
+
+        @Setup(Level.Trial)
+        public void Setup() {
+            BoardSpec spec = BoardSpec.Parse(board);
+            target = spec.NewBoard(1);
+
+            // The 3x3 area around the first click is safe, so the flood fill always has something to reveal
+            startRow = spec.rows / 2;
+            startCol = spec.cols / 2;
+            target.Generate(startRow, startCol);
+            byte[] before = target.getCells().clone();
+            propagated = Changed(() -> target.Click(startRow, startCol));
+            hidden = Values(before, propagated);
+
+            FindChord();
+            before = target.getCells().clone();
+            chorded = Changed(() -> target.ShowObviousCells(chordRow, chordCol));
+            opened = Values(before, chorded);
+            target.Apply(null, chorded, opened, null, 0, 0);
+        }
+
+        // Looks for a shown cell with hidden safe neighbours and flags its mines, ready to be chorded
+        private void FindChord() {
+            for (int r = 0; r < target.getTotRows(); r++) {
+                for (int c = 0; c < target.getTotCols(); c++) {
+                    if (!target.isShown(r, c) || target.getTotNearMines(r, c) == 0 || !HasHiddenSafe(r, c))
+                        continue;
+
+                    for (int i = r - 1; i <= r + 1; i++) {
+                        for (int j = c - 1; j <= c + 1; j++) {
+                            if (target.IsInBounds(i, j) && target.isMine(i, j) && target.CanBeShown(i, j))
+                                target.ToggleState(i, j);
+                        }
+                    }
+                    chordRow = r;
+                    chordCol = c;
+                    return;
+                }
+            }
+            throw new IllegalStateException("No cell to chord on " + board);
+        }
+        private boolean HasHiddenSafe(int row, int col) {
+            for (int r = row - 1; r <= row + 1; r++) {
+                for (int c = col - 1; c <= col + 1; c++) {
+                    if (target.IsInBounds(r, c) && !target.isMine(r, c) && target.CanBeShown(r, c))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        private int[] Changed(Runnable move) {
+            int[][] changed = { new int[64] };
+            int[] totChanged = { 0 };
+            Board.Listener recorder = new Board.Listener() {
+                @Override
+                public void CellChanged(int row, int col) {
+                    if (totChanged[0] == changed[0].length)
+                        changed[0] = Arrays.copyOf(changed[0], changed[0].length * 2);
+                    changed[0][totChanged[0]++] = target.Index(row, col);
+                }
+            };
+            target.AddListener(recorder);
+            move.run();
+            target.RemoveListener(recorder);
+            return Arrays.copyOf(changed[0], totChanged[0]);
+        }
+        private static byte[] Values(byte[] cells, int[] indices) {
+            byte[] values = new byte[indices.length];
+            for (int i = 0; i < indices.length; i++)
+                values[i] = cells[indices[i]];
+            return values;
+        }
+    }
+
+    // The flags of the chord stay on mines, which the flood fill never reaches
+    @State(Scope.Thread)
+    public static class Hidden {
+        Position position;
+
+        @Setup(Level.Trial)
+        public void Setup(Position position) {
+            this.position = position;
+        }
+        @Setup(Level.Invocation)
+        public void Restore() {
+            position.target.Apply(null, position.propagated, position.hidden, null, 0, 0);
+        }
+    }
+    @State(Scope.Thread)
+    public static class Opened {
+        Position position;
+
+        @Setup(Level.Trial)
+        public void Setup(Position position) {
+            this.position = position;
+        }
+        @Setup(Level.Invocation)
+        public void Restore() {
+            position.target.Apply(null, position.chorded, position.opened, null, 0, 0);
+        }
+    }
+
+
+    // Opening flood fill from the first click
+    @Benchmark
+    public int propagate(Hidden state) {
+        return state.position.target.Propagate(state.position.startRow, state.position.startCol);
+    }
+
+    // Chord on a numbered cell whose mines are all flagged
+    @Benchmark
+    public boolean showObviousCells(Opened state) {
+        return state.position.target.ShowObviousCells(state.position.chordRow, state.position.chordCol);
+    }
+}
@@ -0,0 +1,62 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.Arrays;
+
+// Cells of a board as bits, in the same order as the cell indices: bit i of the board is bit i % 64
+// of word i / 64. Rows are not aligned to words, RowWords copies one out with its own alignment
+final class Bitboard {
+    final int totRows, totCols;
+    // Words of a row copied out by RowWords
+    final int words;
+    // One spare word at the end, so a window can always read the word after its own
+    final long[] bits;
+
+
+    Bitboard(int totRows, int totCols) {
+        this.totRows = totRows;
+        this.totCols = totCols;
+        this.words   = (totCols + 63) >>> 6;
+        this.bits    = new long[(int) (((long) totRows * totCols + 63) >>> 6) + 1];
+    }
+
+    boolean Get(int index) { return (bits[index >>> 6] >>> index & 1) != 0; }
+    void Set(int index) { bits[index >>> 6] |= 1L << index; }
+    void Clear(int index) { bits[index >>> 6] &= ~(1L << index); }
+    void Clear() { Arrays.fill(bits, 0L); }
+    void CopyFrom(Bitboard other) { System.arraycopy(other.bits, 0, bits, 0, bits.length); }
+
+    // Copies a row into 'words' words starting at 'offset', column 0 in bit 0, zeros past the last column
+    void RowWords(int r, long[] into, int offset) {
+        int start = r * totCols;
+        for (int w = 0; w < words; w++) {
+            int bit = start + (w << 6), shift = bit & 63;
+            long word = bits[bit >>> 6] >>> shift;
+            if (shift != 0)
+                word |= bits[(bit >>> 6) + 1] << (64 - shift);
+            into[offset + w] = word;
+        }
+        if ((totCols & 63) != 0)
+            into[offset + words - 1] &= (1L << totCols) - 1;
+    }
+
+    // Bits set in the 3x3 area around the cell: three windows of three bits, one per row
+    int Count3x3(int r, int c) {
+        long mask = ((c == 0) ? 6 : 7) & ((c == totCols - 1) ? 3 : 7);
+        int count = 0;
+        for (int i = Math.max(r - 1, 0), last = Math.min(r + 1, totRows - 1); i <= last; i++) {
+            int bit = i * totCols + c - 1;
+            long window;
+            if (bit < 0) {
+                window = bits[0] << 1;
+            }
+            else {
+                int shift = bit & 63;
+                window = bits[bit >>> 6] >>> shift;
+                if (shift > 61)
+                    window |= bits[(bit >>> 6) + 1] << (64 - shift);
+            }
+            count += Long.bitCount(window & mask);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,559 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Headless game state: every cell is packed in a single byte, no JavaFX involved
+public class Board {
+    public enum State {
+        EMPTY,
+        FLAG,
+        QUESTION_MARK,
+        SHOWN
+    }
+    public enum Result {
+        NONE,
+        WIN,
+        LOSE
+    }
+    // Actions of the player that change the board
+    public enum Move {
+        REVEAL,
+        CHORD,
+        TOGGLE
+    }
+
+    public interface Listener {
+        void CellChanged(int row, int col);
+        // The whole board has been cleared or replaced, without a CellChanged for every cell
+        default void BoardReset() {}
+        // The revealed, flag or question mark counters have changed, once per action
+        default void CountersChanged() {}
+        // A move has been applied, after all of its cell changes
+        default void Moved(Move move, int row, int col) {}
+    }
+
+
+    // Cell layout: bits 0-3 near mines, bit 4 mine, bit 5 exploded, bits 6-7 state
+    static final int NEAR_MINES_MASK = 0x0F;
+    static final int MINE_BIT        = 0x10;
+    static final int EXPLODED_BIT    = 0x20;
+    static final int STATE_SHIFT     = 6;
+    static final int STATE_MASK      = 0xC0;
+
+    private static final State[] STATES = State.values();
+
+
+    private final int totRows, totCols;
+    private final byte[] cells;
+
+    // Kept up to date on every state change, so the game never has to scan the board for them
+    private int totCellShown;
+    private int totFlags, totQuestionMarks;
+    private final int totMines;
+    // Cells holding a mine, in placement order
+    private final int[] mines;
+    private int totPlaced;
+    private boolean generated;
+    private boolean lost;
+    private int firstRow, firstCol;
+    // Seed of the mine layout, the same seed and first click always give the same board
+    private long seed;
+
+    private Listener[] listeners = new Listener[0];
+
+    // Work stack of the flood fill, kept between calls so revealing does not allocate
+    private int[] trace;
+    // Flagged cells as bits, so a chord counts its flags with three word reads
+    private final Bitboard flagBits;
+    // Mines as bits while a layout is placed and counted, allocated on first use
+    private Bitboard mineBits;
+    // Cells around the first click, which never hold a mine
+    private final int[] safe = new int[9];
+
+    // Optional, null unless a registry has been set: the hot paths only pay for a null check
+    private Metrics metrics;
+    private Metrics.Counter clicks;
+    private LatencyHistogram clickTime, propagateTime, revealedCells, chordTime, generateTime;
+
+
+    public int getTotRows()  { return totRows; }
+    public int getTotCols()  { return totCols; }
+    public int getTotCells() { return cells.length; }
+    public int getTotMines() { return totMines; }
+    public int getTotCellShown() { return totCellShown; }
+    public int getTotFlags() { return totFlags; }
+    public int getTotQuestionMarks() { return totQuestionMarks; }
+    public int getTotSafeRemaining() { return cells.length - totMines - totCellShown; }
+    // Mines not flagged yet, as shown by the counter of the game (negative with too many flags)
+    public int getTotMinesRemaining() { return totMines - totFlags; }
+    public boolean isGenerated() { return generated; }
+    public boolean isLost() { return lost; }
+    // Nothing generated, shown or marked since the last reset: every cell is still zero
+    boolean isClean() { return !generated && totCellShown == 0 && totFlags == 0 && totQuestionMarks == 0; }
+    public long getSeed() { return seed; }
+    public int getFirstRow() { return firstRow; }
+    public int getFirstCol() { return firstCol; }
+    public boolean isWon() { return getTotSafeRemaining() <= 0; }
+
+    public boolean isMine(int r, int c) { return (cells[Index(r, c)] & MINE_BIT) != 0; }
+    public boolean isExploded(int r, int c) { return (cells[Index(r, c)] & EXPLODED_BIT) != 0; }
+    public boolean isFlag(int r, int c) { return getState(r, c) == State.FLAG; }
+    public boolean isQuestionMark(int r, int c) { return getState(r, c) == State.QUESTION_MARK; }
+    public boolean isShown(int r, int c) { return getState(r, c) == State.SHOWN; }
+    public State getState(int r, int c) { return STATES[StateOf(Index(r, c))]; }
+    public int getTotNearMines(int r, int c) { return cells[Index(r, c)] & NEAR_MINES_MASK; }
+
+    public boolean CanBeShown(int r, int c) { return StateOf(Index(r, c)) == State.EMPTY.ordinal(); }
+
+    public void AddListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+    public void RemoveListener(Listener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                Listener[] kept = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, kept, 0, i);
+                System.arraycopy(listeners, i + 1, kept, i, kept.length - i);
+                listeners = kept;
+                return;
+            }
+        }
+    }
+    int getTotListeners() { return listeners.length; }
+    public void setSeed(long seed) { this.seed = seed; }
+    public Metrics getMetrics() { return metrics; }
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        clicks        = (metrics != null) ? metrics.getCounter("board.clicks") : null;
+        clickTime     = (metrics != null) ? metrics.getTimer("board.click") : null;
+        propagateTime = (metrics != null) ? metrics.getTimer("board.propagate") : null;
+        revealedCells = (metrics != null) ? metrics.getDistribution("board.propagate.cells") : null;
+        chordTime     = (metrics != null) ? metrics.getTimer("board.chord") : null;
+        generateTime  = (metrics != null) ? metrics.getTimer("board.generate") : null;
+    }
+
+    public boolean IsInBounds(int r, int c) { return (r >= 0 && r < totRows) && (c >= 0 && c < totCols); }
+    public int Index(int r, int c) { return r * totCols + c; }
+
+
+    public Board(int totRows, int totCols, int totMines) {
+        this(totRows, totCols, totMines, NewSeed());
+    }
+    public Board(int totRows, int totCols, int totMines, long seed) {
+        this.totRows      = totRows;
+        this.totCols      = totCols;
+        // The first 9 cells at the beginning of the game cannot be mines
+        this.totMines     = Math.max(1, Math.min(totMines, totRows * totCols - 9));
+        this.totCellShown = 0;
+        this.totFlags     = 0;
+        this.totQuestionMarks = 0;
+        this.generated    = false;
+        this.lost         = false;
+        this.seed         = seed;
+        this.firstRow     = -1;
+        this.firstCol     = -1;
+
+        cells = new byte[totRows * totCols];
+        mines = new int[this.totMines];
+        trace = new int[Math.min(cells.length, 256)];
+        flagBits = new Bitboard(totRows, totCols);
+    }
+
+
+
+    // Primary click on a cell: reveals it or, if already shown, its obvious neighbours
+    public Result Click(int row, int col) {
+        Move move = CanBeShown(row, col) ? Move.REVEAL : (isShown(row, col) && getTotNearMines(row, col) > 0) ? Move.CHORD : null;
+
+        Result result;
+        if (metrics == null) {
+            result = ClickCell(row, col);
+        }
+        else {
+            long start = System.nanoTime();
+            result = ClickCell(row, col);
+            clickTime.Record(System.nanoTime() - start);
+            clicks.Increment();
+        }
+
+        if (move != null)
+            NotifyMove(move, row, col);
+        return result;
+    }
+    private Result ClickCell(int row, int col) {
+        int index = Index(row, col);
+        if (CanBeShown(row, col)) {
+            if (!generated) {
+                Generate(row, col);
+            }
+
+            if (IsMine(index)) {
+                Explode(index);
+                return Result.LOSE;
+            }
+            else {
+                Propagate(row, col);
+            }
+        }
+        else if (isShown(row, col) && getTotNearMines(row, col) > 0) {
+            if (!ShowObviousCells(row, col))
+                return Result.LOSE;
+        }
+        return isWon() ? Result.WIN : Result.NONE;
+    }
+
+    // Toggles state between 'empty', 'flag' and 'question mark' ('shown' is excluded)
+    public void ToggleState(int row, int col) {
+        int index = Index(row, col);
+        if (StateOf(index) != State.SHOWN.ordinal()) {
+            SetState(index, (StateOf(index) + 1) % 3);
+            NotifyCounters();
+            NotifyMove(Move.TOGGLE, row, col);
+        }
+    }
+
+    public void Generate(int row, int col) {
+        long start = (metrics != null) ? System.nanoTime() : 0;
+        generated = true;
+        firstRow  = row;
+        firstCol  = col;
+
+        PlaceMines(row, col);
+        NearMines.getInstance().Calculate(cells, mineBits);
+        if (metrics != null)
+            generateTime.Record(System.nanoTime() - start);
+    }
+    // Floyd's sampling over the cells outside the 3x3 area around the first click: it draws exactly
+    // one random number per mine and uses a bitboard as the set of chosen cells, 8 times smaller than
+    // the cells so the random accesses mostly hit the cache. The mine bits reach the cells together
+    // with the near mine counts
+    void PlaceMines(int row, int col) {
+        if (mineBits == null)
+            mineBits = new Bitboard(totRows, totCols);
+        mineBits.Clear();
+
+        int totSafe = 0;
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if (IsInBounds(r, c)) {
+                    safe[totSafe++] = Index(r, c);
+                }
+            }
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int available = cells.length - totSafe;
+        int count = Math.min(totMines, available);
+        totPlaced = 0;
+        for (int j = available - count; j < available; j++) {
+            int index = SkipSafe(random.nextInt(j + 1), totSafe);
+            if (mineBits.Get(index))
+                index = SkipSafe(j, totSafe);
+            mineBits.Set(index);
+            mines[totPlaced++] = index;
+        }
+    }
+    // Maps a position among the non safe cells to its cell index, safe cells are sorted ascending
+    private int SkipSafe(int position, int totSafe) {
+        // Before or after all of them, which is every position but a handful
+        if (totSafe == 0 || position < safe[0])
+            return position;
+        if (position + totSafe - 1 >= safe[totSafe - 1])
+            return position + totSafe;
+
+        int index = position;
+        for (int i = 0; i < totSafe && safe[i] <= index; i++) {
+            index++;
+        }
+        return index;
+    }
+    // Counted a row at a time over a bitboard of the mines taken from the cells, see NearMines
+    void CalculateNearMines() {
+        if (mineBits == null)
+            mineBits = new Bitboard(totRows, totCols);
+        NearMines.Gather(cells, mineBits);
+        NearMines.getInstance().Calculate(cells, mineBits);
+    }
+
+    public boolean ShowObviousCells(int row, int col) {
+        if (metrics == null)
+            return Chord(row, col);
+
+        long start = System.nanoTime();
+        boolean result = Chord(row, col);
+        chordTime.Record(System.nanoTime() - start);
+        return result;
+    }
+    private boolean Chord(int row, int col) {
+        if (flagBits.Count3x3(row, col) >= getTotNearMines(row, col)) {
+            for (int r = row - 1; r <= row + 1; r++) {
+                for (int c = col - 1; c <= col + 1; c++) {
+                    if (IsInBounds(r, c) && CanBeShown(r, c)) {
+                        int index = Index(r, c);
+                        if (IsMine(index)) {
+                            Explode(index);
+                            return false;
+                        }
+
+                        Propagate(r, c);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    // Reveals the cell and, if it has no near mines, the whole empty area around it.
+    // Returns how many cells have been revealed
+    public int Propagate(int row, int col) {
+        if (metrics == null)
+            return Flood(row, col);
+
+        long start = System.nanoTime();
+        int revealed = Flood(row, col);
+        propagateTime.Record(System.nanoTime() - start);
+        revealedCells.Record(revealed);
+        return revealed;
+    }
+    private int Flood(int row, int col) {
+        int start = Index(row, col);
+        int revealed = 0;
+        if (StateOf(start) == State.EMPTY.ordinal()) {
+            Reveal(start);
+            revealed++;
+        }
+
+        // A cell is marked shown as soon as it is pushed, so the state bits act as the visited set
+        // and every cell goes through the trace at most once
+        int top = 0;
+        trace[top++] = start;
+        while (top > 0) {
+            int index = trace[--top];
+            if ((cells[index] & NEAR_MINES_MASK) != 0)
+                continue;
+
+            int r = index / totCols, c = index % totCols;
+            int rMax = Math.min(r + 1, totRows - 1), cMax = Math.min(c + 1, totCols - 1);
+            for (int i = Math.max(r - 1, 0); i <= rMax; i++) {
+                for (int j = Math.max(c - 1, 0); j <= cMax; j++) {
+                    int near = Index(i, j);
+                    if (StateOf(near) == State.EMPTY.ordinal()) {
+                        Reveal(near);
+                        revealed++;
+
+                        if ((cells[near] & NEAR_MINES_MASK) == 0) {
+                            if (top == trace.length)
+                                trace = Arrays.copyOf(trace, Math.min(trace.length * 2, cells.length));
+                            trace[top++] = near;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (revealed > 0)
+            NotifyCounters();
+        return revealed;
+    }
+
+    // Shows every mine of the board, used when the game is lost. The counters are left as they
+    // were at the end of the game, flags included
+    public void ShowMines() {
+        int flags = totFlags, questionMarks = totQuestionMarks;
+        for (int m = 0; m < totPlaced; m++) {
+            int index = mines[m];
+            if (StateOf(index) != State.SHOWN.ordinal()) {
+                SetState(index, State.SHOWN.ordinal());
+            }
+        }
+        totFlags         = flags;
+        totQuestionMarks = questionMarks;
+    }
+
+    // Clears the board for a new game with a new random layout
+    public void Reset() {
+        Reset(NewSeed());
+    }
+    public void Reset(long seed) {
+        // Only a board never played or marked is all zeros already, the others are cleared in bulk
+        boolean clean = isClean();
+        totCellShown = 0;
+        totFlags     = 0;
+        totQuestionMarks = 0;
+        totPlaced    = 0;
+        generated    = false;
+        lost         = false;
+        this.seed    = seed;
+        firstRow     = -1;
+        firstCol     = -1;
+        if (!clean) {
+            Arrays.fill(cells, (byte) 0);
+            flagBits.Clear();
+        }
+
+        for (Listener listener : listeners)
+            listener.BoardReset();
+        NotifyCounters();
+    }
+
+    // Rebuilds the derived data after the mine and state bits have been loaded into the cells
+    void Restore(long seed, int firstRow, int firstCol) {
+        this.seed     = seed;
+        this.firstRow = firstRow;
+        this.firstCol = firstCol;
+        generated     = firstRow >= 0;
+        lost          = false;
+        totCellShown  = 0;
+        totFlags      = 0;
+        totQuestionMarks = 0;
+        totPlaced     = 0;
+        flagBits.Clear();
+
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] &= ~NEAR_MINES_MASK;
+            if ((cells[i] & EXPLODED_BIT) != 0)
+                lost = true;
+
+            int state = StateOf(i);
+            if (IsMine(i)) {
+                if (totPlaced < mines.length)
+                    mines[totPlaced++] = i;
+            }
+            else if (state == State.SHOWN.ordinal())
+                totCellShown++;
+
+            if (state == State.FLAG.ordinal()) {
+                totFlags++;
+                flagBits.Set(i);
+            }
+            else if (state == State.QUESTION_MARK.ordinal())
+                totQuestionMarks++;
+        }
+        CalculateNearMines();
+
+        for (Listener listener : listeners)
+            listener.BoardReset();
+        NotifyCounters();
+    }
+
+    // Makes this board identical to another one of the same size, with a single reset notification
+    void CopyFrom(Board other) {
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.mines, 0, mines, 0, other.totPlaced);
+        flagBits.CopyFrom(other.flagBits);
+        totPlaced        = other.totPlaced;
+        totCellShown     = other.totCellShown;
+        totFlags         = other.totFlags;
+        totQuestionMarks = other.totQuestionMarks;
+        generated        = other.generated;
+        lost             = other.lost;
+        seed             = other.seed;
+        firstRow         = other.firstRow;
+        firstCol         = other.firstCol;
+
+        for (Listener listener : listeners)
+            listener.BoardReset();
+        NotifyCounters();
+    }
+
+    // Takes the result of a move made on a copy of this board: the mines placed by the copy when the
+    // move generated it, then the new bytes of the cells that changed. Listeners hear it as if the move
+    // was made here
+    void Apply(Bitboard layout, int[] indices, byte[] values, Move move, int row, int col) {
+        if (layout != null)
+            Place(layout, row, col);
+
+        if (indices.length > 0) {
+            for (int i = 0; i < indices.length; i++) {
+                int index = indices[i], old = StateOf(index);
+                int state = (values[i] & STATE_MASK) >>> STATE_SHIFT;
+                Count(old, IsMine(index), -1);
+                Count(state, (values[i] & MINE_BIT) != 0, +1);
+                if (old == State.FLAG.ordinal())
+                    flagBits.Clear(index);
+                if (state == State.FLAG.ordinal())
+                    flagBits.Set(index);
+                if ((values[i] & EXPLODED_BIT) != 0)
+                    lost = true;
+                cells[index] = values[i];
+            }
+            for (int index : indices) {
+                for (Listener listener : listeners)
+                    listener.CellChanged(index / totCols, index % totCols);
+            }
+            NotifyCounters();
+        }
+
+        if (move != null)
+            NotifyMove(move, row, col);
+    }
+
+    // Generation with the mines of a layout drawn elsewhere, from the same seed and first click
+    private void Place(Bitboard layout, int row, int col) {
+        generated = true;
+        firstRow  = row;
+        firstCol  = col;
+
+        if (mineBits == null)
+            mineBits = new Bitboard(totRows, totCols);
+        mineBits.CopyFrom(layout);
+        totPlaced = 0;
+        for (int w = 0; w < mineBits.bits.length; w++) {
+            for (long word = mineBits.bits[w]; word != 0 && totPlaced < mines.length; word &= word - 1)
+                mines[totPlaced++] = (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+        NearMines.getInstance().Calculate(cells, mineBits);
+    }
+
+    byte[] getCells() { return cells; }
+    Bitboard getMineBits() { return mineBits; }
+
+    public static long NewSeed() { return ThreadLocalRandom.current().nextLong(); }
+
+
+    private boolean IsMine(int index) { return (cells[index] & MINE_BIT) != 0; }
+    private int StateOf(int index) { return (cells[index] & STATE_MASK) >>> STATE_SHIFT; }
+
+    private void Reveal(int index) {
+        SetState(index, State.SHOWN.ordinal());
+    }
+    private void Explode(int index) {
+        lost = true;
+        cells[index] |= EXPLODED_BIT;
+        SetState(index, State.SHOWN.ordinal());
+    }
+    private void SetState(int index, int state) {
+        int old = StateOf(index);
+        Count(old, IsMine(index), -1);
+        Count(state, IsMine(index), +1);
+        cells[index] = (byte) ((cells[index] & ~STATE_MASK) | (state << STATE_SHIFT));
+        if (old == State.FLAG.ordinal())
+            flagBits.Clear(index);
+        else if (state == State.FLAG.ordinal())
+            flagBits.Set(index);
+
+        if (listeners.length > 0) {
+            int row = index / totCols, col = index % totCols;
+            for (Listener listener : listeners)
+                listener.CellChanged(row, col);
+        }
+    }
+    private void Count(int state, boolean mine, int delta) {
+        if (state == State.FLAG.ordinal())
+            totFlags += delta;
+        else if (state == State.QUESTION_MARK.ordinal())
+            totQuestionMarks += delta;
+        else if (state == State.SHOWN.ordinal() && !mine)
+            totCellShown += delta;
+    }
+    private void NotifyMove(Move move, int row, int col) {
+        for (Listener listener : listeners)
+            listener.Moved(move, row, col);
+    }
+    private void NotifyCounters() {
+        for (Listener listener : listeners)
+            listener.CountersChanged();
+    }
+}
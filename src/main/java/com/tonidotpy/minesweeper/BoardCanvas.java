@@ -0,0 +1,290 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+// Virtualized view for huge boards: only the cells inside the viewport are drawn on a single canvas,
+// so memory and frame time depend on the window size and not on the board size
+public class BoardCanvas extends Region implements BoardView {
+    private static final double MIN_CELL_SIZE = 4.0;
+    private static final double MAX_CELL_SIZE = 64.0;
+    private static final double ZOOM_FACTOR   = 1.1;
+
+    private final Board board;
+    private final Canvas canvas;
+
+    private final Game game;
+    private final BoardInput input;
+    private Engine engine;
+
+    // Size of a cell in pixels and position of the viewport inside the board, in pixels
+    private double cellSize;
+    private double offsetX, offsetY;
+
+    // Redraws are coalesced so that any number of board changes and scrolls cost one draw per pulse
+    private final AnimationTimer drawTimer;
+    private boolean drawRequested;
+
+    private int pressedRow, pressedCol;
+    private int highlightRow, highlightCol;
+    private boolean highlightSafe;
+    private Probabilities.Result probabilities;
+    private double dragX, dragY;
+    private final LatencyHistogram drawTime;
+
+
+    public Board getBoard() { return board; }
+    public BoardInput getInput() { return input; }
+    public void setEngine(Engine engine) { this.engine = engine; }
+    public double getCellSize() { return cellSize; }
+
+
+    public BoardCanvas(Game game, int totRows, int totCols, int totMines) {
+        this(game, new Board(totRows, totCols, totMines));
+    }
+    public BoardCanvas(Game game, Board board) {
+        super();
+
+        this.game = game;
+        this.input = new BoardInput();
+        input.AddListener(this::Apply);
+
+        this.board = board;
+        drawTime = (board.getMetrics() != null) ? board.getMetrics().getTimer("view.draw") : null;
+        canvas = new Canvas();
+        canvas.getGraphicsContext2D().setImageSmoothing(false);
+        this.getChildren().add(canvas);
+
+        cellSize = 24.0;
+        offsetX  = 0.0;
+        offsetY  = 0.0;
+        pressedRow = pressedCol = -1;
+        highlightRow = highlightCol = -1;
+
+        drawRequested = false;
+        drawTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drawRequested = false;
+                stop();
+                Draw();
+            }
+        };
+
+        board.AddListener(new Board.Listener() {
+            @Override
+            public void CellChanged(int row, int col) { RequestDraw(); }
+            @Override
+            public void BoardReset() { RequestDraw(); }
+        });
+
+        this.setOnMousePressed(this::Press);
+        this.setOnMouseDragged(this::Drag);
+        this.setOnMouseReleased(mouseEvent -> Apply(BoardInput.Action.RELEASE, -1, -1));
+        this.setOnMouseClicked(this::Click);
+        this.setOnScroll(this::Scroll);
+    }
+
+
+
+    private void Press(MouseEvent mouseEvent) {
+        dragX = mouseEvent.getX();
+        dragY = mouseEvent.getY();
+
+        int row = RowAt(mouseEvent.getY()), col = ColAt(mouseEvent.getX());
+        if (mouseEvent.getButton() == MouseButton.PRIMARY && board.IsInBounds(row, col))
+            input.Send(BoardInput.Action.PRESS, row, col);
+    }
+    private void Drag(MouseEvent mouseEvent) {
+        if (mouseEvent.getButton() != MouseButton.MIDDLE)
+            return;
+
+        Scroll(dragX - mouseEvent.getX(), dragY - mouseEvent.getY());
+        dragX = mouseEvent.getX();
+        dragY = mouseEvent.getY();
+    }
+    private void Click(MouseEvent mouseEvent) {
+        int row = RowAt(mouseEvent.getY()), col = ColAt(mouseEvent.getX());
+        if (!mouseEvent.isStillSincePress() || !board.IsInBounds(row, col))
+            return;
+
+        switch (mouseEvent.getButton()) {
+            case PRIMARY   -> input.Send(BoardInput.Action.PRIMARY, row, col);
+            case SECONDARY -> input.Send(BoardInput.Action.SECONDARY, row, col);
+        }
+    }
+
+    private void Apply(BoardInput.Action action, int row, int col) {
+        switch (action) {
+            case PRESS -> {
+                if (board.CanBeShown(row, col)) {
+                    pressedRow = row;
+                    pressedCol = col;
+                }
+            }
+            case RELEASE -> pressedRow = pressedCol = -1;
+            case PRIMARY -> {
+                highlightRow = highlightCol = -1;
+                if (engine != null)
+                    engine.Click(row, col);
+                else
+                    game.Finished(board.Click(row, col));
+            }
+            case SECONDARY -> {
+                highlightRow = highlightCol = -1;
+                if (engine != null)
+                    engine.ToggleState(row, col);
+                else
+                    board.ToggleState(row, col);
+            }
+        }
+        RequestDraw();
+    }
+
+    // Scrolls the viewport, or zooms around the pointer while control is held down
+    private void Scroll(ScrollEvent scrollEvent) {
+        if (scrollEvent.isControlDown()) {
+            double factor = (scrollEvent.getDeltaY() > 0) ? ZOOM_FACTOR : 1.0 / ZOOM_FACTOR;
+            Zoom(factor, scrollEvent.getX(), scrollEvent.getY());
+        }
+        else {
+            Scroll(-scrollEvent.getDeltaX(), -scrollEvent.getDeltaY());
+        }
+        scrollEvent.consume();
+    }
+    public void Scroll(double dx, double dy) {
+        offsetX += dx;
+        offsetY += dy;
+        ClampOffset();
+        RequestDraw();
+    }
+    public void Zoom(double factor, double pivotX, double pivotY) {
+        double size = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellSize * factor));
+        double scale = size / cellSize;
+
+        offsetX = (offsetX + pivotX) * scale - pivotX;
+        offsetY = (offsetY + pivotY) * scale - pivotY;
+        cellSize = size;
+        ClampOffset();
+        RequestDraw();
+    }
+    private void ClampOffset() {
+        double maxX = board.getTotCols() * cellSize - canvas.getWidth();
+        double maxY = board.getTotRows() * cellSize - canvas.getHeight();
+        offsetX = Math.max(0.0, Math.min(offsetX, maxX));
+        offsetY = Math.max(0.0, Math.min(offsetY, maxY));
+    }
+
+    private int RowAt(double y) { return (int) Math.floor((y - canvas.getLayoutY() + offsetY) / cellSize); }
+    private int ColAt(double x) { return (int) Math.floor((x - canvas.getLayoutX() + offsetX) / cellSize); }
+
+
+    public void RequestDraw() {
+        if (!drawRequested) {
+            drawRequested = true;
+            drawTimer.start();
+        }
+    }
+    public void Draw() {
+        long start = (drawTime != null) ? System.nanoTime() : 0;
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth(), height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+
+        int firstRow = (int) (offsetY / cellSize), firstCol = (int) (offsetX / cellSize);
+        int lastRow  = Math.min(board.getTotRows() - 1, (int) ((offsetY + height) / cellSize));
+        int lastCol  = Math.min(board.getTotCols() - 1, (int) ((offsetX + width) / cellSize));
+
+        CellSprites sprites = ImageManager.getCellSprites((int) Math.round(cellSize));
+        for (int r = firstRow; r <= lastRow; r++) {
+            double y = r * cellSize - offsetY;
+            for (int c = firstCol; c <= lastCol; c++) {
+                double x = c * cellSize - offsetX;
+                gc.drawImage(CellImage(sprites, r, c), x, y, cellSize, cellSize);
+            }
+        }
+
+        if (probabilities != null) {
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int c = firstCol; c <= lastCol; c++) {
+                    if (board.isShown(r, c))
+                        continue;
+                    gc.setFill(HeatColor(probabilities.getProbability(board.Index(r, c))));
+                    gc.fillRect(c * cellSize - offsetX, r * cellSize - offsetY, cellSize, cellSize);
+                }
+            }
+        }
+
+        if (highlightRow >= 0) {
+            gc.setStroke(highlightSafe ? Color.LIMEGREEN : Color.ORANGE);
+            gc.setLineWidth(Math.max(2.0, cellSize / 8.0));
+            gc.strokeRect(highlightCol * cellSize - offsetX, highlightRow * cellSize - offsetY, cellSize, cellSize);
+        }
+        if (drawTime != null)
+            drawTime.Record(System.nanoTime() - start);
+    }
+    // Highlights the cell and centres the viewport on it
+    public void Highlight(int row, int col, boolean safe) {
+        highlightRow  = row;
+        highlightCol  = col;
+        highlightSafe = safe;
+
+        offsetX = (col + 0.5) * cellSize - canvas.getWidth() / 2.0;
+        offsetY = (row + 0.5) * cellSize - canvas.getHeight() / 2.0;
+        ClampOffset();
+        RequestDraw();
+    }
+
+    public void ShowProbabilities(Probabilities.Result probabilities) {
+        this.probabilities = probabilities;
+        RequestDraw();
+    }
+    // Green for safe cells to red for mines, see-through so the cell stays readable
+    static Color HeatColor(double probability) {
+        if (Double.isNaN(probability))
+            return Color.TRANSPARENT;
+        return Color.hsb(120.0 * (1.0 - probability), 0.9, 0.9, 0.45);
+    }
+
+    private Image CellImage(CellSprites sprites, int row, int col) {
+        if (row == pressedRow && col == pressedCol && board.CanBeShown(row, col))
+            return sprites.getEmptyPressedImage();
+        return sprites.ImageOf(board, row, col);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double x = snappedLeftInset(), y = snappedTopInset();
+        double w = Math.max(0.0, getWidth() - x - snappedRightInset());
+        double h = Math.max(0.0, getHeight() - y - snappedBottomInset());
+
+        canvas.relocate(x, y);
+        if (canvas.getWidth() != w || canvas.getHeight() != h) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            ClampOffset();
+            RequestDraw();
+        }
+    }
+
+    public void ResizeCells(double width, double height) {
+        this.setPrefSize(width, height);
+    }
+
+    public void Reset(long seed) {
+        board.Reset(seed);
+        this.setDisable(false);
+        offsetX = offsetY = 0.0;
+        pressedRow = pressedCol = -1;
+        highlightRow = highlightCol = -1;
+        probabilities = null;
+        RequestDraw();
+    }
+}
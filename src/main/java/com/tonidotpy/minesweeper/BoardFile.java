@@ -0,0 +1,174 @@
+package com.tonidotpy.minesweeper;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Compact binary format of a board:
+//   header     magic, version, rows, cols, mines, seed, first click row and col, exploded cell (-1 if none)
+//   mine layer 1 bit per cell
+//   state layer 2 bits per cell (empty, flag, question mark, shown)
+// Near mine counts are not stored, they are recalculated from the mine layer on load
+public final class BoardFile {
+    private static final int MAGIC   = 0x4D535742; // "MSWB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 4 + 8 + 4 + 4 + 4;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT  = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Cells bytes of every packed layer byte: mine bit for 8 cells, state bits for 4 cells
+    private static final long[] MINE_SPREAD  = new long[256];
+    private static final int[]  STATE_SPREAD = new int[256];
+    static {
+        for (int bits = 0; bits < 256; bits++) {
+            for (int k = 0; k < 8; k++)
+                MINE_SPREAD[bits] |= (long) ((bits >>> k) & 1) << (k * 8 + 4);
+            for (int k = 0; k < 4; k++)
+                STATE_SPREAD[bits] |= ((bits >>> (k * 2)) & 3) << (k * 8 + Board.STATE_SHIFT);
+        }
+    }
+
+
+    private BoardFile() {}
+
+
+    public static void Write(Board board, Path path) throws IOException {
+        byte[] cells = board.getCells();
+        int exploded = -1;
+        for (int i = 0; i < cells.length && exploded < 0; i++) {
+            if ((cells[i] & Board.EXPLODED_BIT) != 0)
+                exploded = i;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC)
+                  .putInt(VERSION)
+                  .putInt(board.getTotRows())
+                  .putInt(board.getTotCols())
+                  .putInt(board.getTotMines())
+                  .putLong(board.getSeed())
+                  .putInt(board.getFirstRow())
+                  .putInt(board.getFirstCol())
+                  .putInt(exploded);
+
+            header.flip();
+            Write(channel, header);
+
+            byte[] chunk = new byte[BUFFER_SIZE];
+
+            // Mine layer: 8 cells per byte, gathered from one long of cells at a time
+            int length = 0;
+            for (int i = 0; i < cells.length; i += 8) {
+                long bits = 0;
+                if (i + 8 <= cells.length) {
+                    long word = ((long) LONG.get(cells, i) >>> 4) & 0x0101010101010101L;
+                    bits = (word * 0x0102040810204080L) >>> 56;
+                }
+                else {
+                    for (int j = i; j < cells.length; j++)
+                        bits |= (long) ((cells[j] & Board.MINE_BIT) >>> 4) << (j - i);
+                }
+                chunk[length++] = (byte) bits;
+                if (length == chunk.length) {
+                    Write(channel, ByteBuffer.wrap(chunk));
+                    length = 0;
+                }
+            }
+            // State layer: 4 cells per byte, gathered from one int of cells at a time
+            for (int i = 0; i < cells.length; i += 4) {
+                int bits = 0;
+                if (i + 4 <= cells.length) {
+                    int word = ((int) INT.get(cells, i) >>> Board.STATE_SHIFT) & 0x03030303;
+                    word |= word >>> 6;
+                    bits = (word | (word >>> 12)) & 0xFF;
+                }
+                else {
+                    for (int j = i; j < cells.length; j++)
+                        bits |= ((cells[j] & Board.STATE_MASK) >>> Board.STATE_SHIFT) << ((j - i) * 2);
+                }
+                chunk[length++] = (byte) bits;
+                if (length == chunk.length) {
+                    Write(channel, ByteBuffer.wrap(chunk));
+                    length = 0;
+                }
+            }
+            Write(channel, ByteBuffer.wrap(chunk, 0, length));
+        }
+    }
+
+    public static Board Read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            Fill(channel, buffer);
+            buffer.flip();
+
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a board file: " + path);
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported board file version " + version);
+
+            int rows = buffer.getInt(), cols = buffer.getInt(), mines = buffer.getInt();
+            long seed = buffer.getLong();
+            int firstRow = buffer.getInt(), firstCol = buffer.getInt();
+            int exploded = buffer.getInt();
+            if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE)
+                throw new IOException("Invalid board size " + rows + "x" + cols);
+
+            Board board = new Board(rows, cols, mines, seed);
+            byte[] cells = board.getCells();
+
+            // Both layers are read in one go, they take 3 bits per cell
+            byte[] layers = new byte[(cells.length + 7) / 8 + (cells.length + 3) / 4];
+            Fill(channel, ByteBuffer.wrap(layers));
+
+            int position = 0;
+            for (int i = 0; i < cells.length; i += 8) {
+                int bits = layers[position++] & 0xFF;
+                if (i + 8 <= cells.length) {
+                    LONG.set(cells, i, MINE_SPREAD[bits]);
+                }
+                else {
+                    for (int j = i; j < cells.length; j++)
+                        cells[j] = (byte) (((bits >>> (j - i)) & 1) << 4);
+                }
+            }
+            for (int i = 0; i < cells.length; i += 4) {
+                int bits = layers[position++] & 0xFF;
+                if (i + 4 <= cells.length) {
+                    INT.set(cells, i, (int) INT.get(cells, i) | STATE_SPREAD[bits]);
+                }
+                else {
+                    for (int j = i; j < cells.length; j++)
+                        cells[j] |= (byte) (((bits >>> ((j - i) * 2)) & 3) << Board.STATE_SHIFT);
+                }
+            }
+            if (exploded >= 0 && exploded < cells.length)
+                cells[exploded] |= Board.EXPLODED_BIT;
+
+            board.Restore(seed, firstRow, firstCol);
+            return board;
+        }
+    }
+
+
+    private static void Write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+    private static void Fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of board file");
+            }
+        }
+    }
+}
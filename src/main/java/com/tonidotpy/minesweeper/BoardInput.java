@@ -0,0 +1,33 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.Arrays;
+
+// Input on the cells of a board, whatever its source (mouse, keyboard, bots), dispatched to the
+// listeners in the order they were added. The view that owns the board is always the first one
+public class BoardInput {
+    public enum Action {
+        PRESS,
+        RELEASE,
+        PRIMARY,
+        SECONDARY
+    }
+
+    public interface Listener {
+        void Handle(Action action, int row, int col);
+    }
+
+
+    private Listener[] listeners = new Listener[0];
+
+
+    public void AddListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public void Send(Action action, int row, int col) {
+        for (Listener listener : listeners) {
+            listener.Handle(action, row, col);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.geometry.Insets;
+
+// Node rendering a Board inside the Game, either cell by cell or through a viewport
+public interface BoardView {
+    Board getBoard();
+
+    // Input on the cells: the view applies it to the board first, then the other listeners see it
+    BoardInput getInput();
+    // Clicks go to the engine instead of the board when one is set, see Engine
+    void setEngine(Engine engine);
+
+    // Marks a cell suggested by a hint until the next click, safe or only the least risky
+    void Highlight(int row, int col, boolean safe);
+    // Tints the hidden cells by their chance of being a mine, null to hide it
+    void ShowProbabilities(Probabilities.Result probabilities);
+
+    void ResizeCells(double width, double height);
+    void Reset(long seed);
+    default void Reset() { Reset(Board.NewSeed()); }
+
+    // Implemented by the JavaFX node itself
+    void setDisable(boolean value);
+    void resize(double width, double height);
+    void setPadding(Insets value);
+}
@@ -0,0 +1,320 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Many boards at once, for kiosks and bots. Every board is drawn on its own canvas, header included,
+// and a single pulse updates the clocks and redraws the cells that changed since the last frame.
+// The boards themselves are only touched by a shared executor: each board runs its tasks one at a time
+// and publishes an immutable frame for the FX thread after them
+public class BoardWall extends Region {
+    // Header of a tile in atlas pixels: digits are 13x23, the face 24x24
+    private static final int HEADER = 26;
+    private static final int GAP    = 6;
+    private static final int MIN_CELL_SIZE = 4;
+    private static final int MAX_CELL_SIZE = 32;
+    // Time between two bot steps on a board, and before a finished game is restarted
+    private static final long BOT_STEP_NANOS    = 100_000_000L;
+    private static final long BOT_RESTART_NANOS = 2_000_000_000L;
+
+    // What the FX thread draws, published by the engine after every batch of tasks
+    private record Frame(byte[] cells, int minesRemaining, boolean lost, boolean won, long started, long ended) {}
+
+
+    private final int totRows, totCols, totMines;
+    private final Tile[] tiles;
+    private final ExecutorService executor;
+    private final AnimationTimer pulse;
+
+    private boolean autoplay;
+    private int cellSize;
+    private int tileColumns;
+    // Frames drawn during the last second, for the status line of the window
+    private int frames, framesPerSecond;
+    private long secondStart;
+
+
+    public int getTotBoards() { return tiles.length; }
+    public int getTotRows() { return totRows; }
+    public int getTotCols() { return totCols; }
+    public int getFramesPerSecond() { return framesPerSecond; }
+    public boolean isAutoplay() { return autoplay; }
+    public void setAutoplay(boolean autoplay) { this.autoplay = autoplay; }
+
+
+    public BoardWall(int totBoards, int totRows, int totCols, int totMines) {
+        super();
+
+        this.totRows  = totRows;
+        this.totCols  = totCols;
+        this.totMines = totMines;
+        this.cellSize = MIN_CELL_SIZE;
+
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "wall-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        tiles = new Tile[totBoards];
+        for (int i = 0; i < totBoards; i++) {
+            tiles[i] = new Tile();
+            this.getChildren().add(tiles[i].canvas);
+        }
+
+        pulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                Pulse(now);
+            }
+        };
+        pulse.start();
+    }
+
+
+
+    // New game on every board
+    public void Reset() {
+        for (Tile tile : tiles)
+            tile.Submit(tile::NewGame);
+    }
+
+    public void Shutdown() {
+        pulse.stop();
+        executor.shutdownNow();
+    }
+
+    private void Pulse(long now) {
+        for (Tile tile : tiles) {
+            if (autoplay)
+                tile.Autoplay(now);
+            tile.Draw(now);
+        }
+
+        frames++;
+        if (now - secondStart >= 1_000_000_000L) {
+            framesPerSecond = frames;
+            frames = 0;
+            secondStart = now;
+        }
+    }
+
+
+    // Largest whole pixel cell size at which every tile fits, in the most square arrangement
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth() - snappedLeftInset() - snappedRightInset();
+        double height = getHeight() - snappedTopInset() - snappedBottomInset();
+
+        int bestSize = MIN_CELL_SIZE, bestColumns = (int) Math.ceil(Math.sqrt(tiles.length));
+        for (int columns = 1; columns <= tiles.length; columns++) {
+            int rows = (tiles.length + columns - 1) / columns;
+            double fitWidth  = (width - GAP * (columns - 1)) / columns / totCols;
+            double fitHeight = (height - GAP * (rows - 1)) / rows / (totRows + HEADER / 16.0);
+            int size = (int) Math.min(MAX_CELL_SIZE, Math.floor(Math.min(fitWidth, fitHeight)));
+            if (size > bestSize || (size == bestSize && columns == bestColumns)) {
+                bestSize    = size;
+                bestColumns = columns;
+            }
+        }
+
+        if (bestSize != cellSize || bestColumns != tileColumns) {
+            cellSize    = bestSize;
+            tileColumns = bestColumns;
+            for (Tile tile : tiles)
+                tile.Resize();
+        }
+
+        double tileWidth = tiles[0].canvas.getWidth(), tileHeight = tiles[0].canvas.getHeight();
+        for (int i = 0; i < tiles.length; i++) {
+            int column = i % tileColumns, row = i / tileColumns;
+            tiles[i].canvas.relocate(snappedLeftInset() + column * (tileWidth + GAP), snappedTopInset() + row * (tileHeight + GAP));
+        }
+    }
+    @Override
+    protected double computePrefWidth(double height) { return 8 * (totCols * 8 + GAP); }
+    @Override
+    protected double computePrefHeight(double width) { return 8 * ((totRows + 2) * 8 + GAP); }
+
+
+    private class Tile {
+        final Canvas canvas = new Canvas();
+        // Engine side, only touched by the tasks of this tile
+        private final Board board = new Board(totRows, totCols, totMines);
+        private final Bot bot = new Bot(board, Board.NewSeed());
+        private long started, ended;
+        private long nextStep;
+
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile Frame frame;
+
+        // FX side: what is on the canvas now
+        private Frame drawn;
+        private byte[] drawnCells;
+        private int drawnTime = -1;
+        private boolean fullRedraw = true;
+
+
+        Tile() {
+            Publish();
+            canvas.getGraphicsContext2D().setImageSmoothing(false);
+            canvas.setOnMouseClicked(this::Click);
+        }
+
+
+        // Runs the task on the shared executor, after the tasks submitted before it for this board
+        void Submit(Runnable task) {
+            tasks.add(task);
+            if (scheduled.compareAndSet(false, true))
+                executor.execute(this::Drain);
+        }
+        private void Drain() {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null)
+                    task.run();
+                Publish();
+            }
+            finally {
+                scheduled.set(false);
+            }
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true))
+                executor.execute(this::Drain);
+        }
+        private void Publish() {
+            frame = new Frame(board.getCells().clone(), board.getTotMinesRemaining(), board.isLost(), board.isWon(), started, ended);
+        }
+
+        void NewGame() {
+            board.Reset();
+            started = ended = 0;
+        }
+        private void Apply(Board.Result result) {
+            if (started == 0 && board.isGenerated())
+                started = System.nanoTime();
+            if (result != Board.Result.NONE && ended == 0) {
+                ended = System.nanoTime();
+                if (result == Board.Result.LOSE)
+                    board.ShowMines();
+            }
+        }
+        private void Reveal(int row, int col) {
+            if (!board.isLost() && !board.isWon())
+                Apply(board.Click(row, col));
+        }
+        private void Toggle(int row, int col) {
+            if (!board.isLost() && !board.isWon())
+                board.ToggleState(row, col);
+        }
+        private void Step() {
+            if (board.isLost() || board.isWon()) {
+                if (System.nanoTime() - ended >= BOT_RESTART_NANOS)
+                    NewGame();
+            }
+            else if (!board.isGenerated()) {
+                Apply(board.Click(totRows / 2, totCols / 2));
+            }
+            else {
+                Apply(bot.Step());
+            }
+        }
+
+        // One bot step at a time per board, only once the previous one has been published
+        void Autoplay(long now) {
+            if (now >= nextStep && !scheduled.get()) {
+                nextStep = now + BOT_STEP_NANOS;
+                Submit(this::Step);
+            }
+        }
+
+        private void Click(MouseEvent mouseEvent) {
+            int header = HeaderHeight();
+            if (mouseEvent.getY() < header) {
+                Submit(this::NewGame);
+                return;
+            }
+
+            int row = (int) ((mouseEvent.getY() - header) / cellSize), col = (int) (mouseEvent.getX() / cellSize);
+            if (row < 0 || row >= totRows || col < 0 || col >= totCols)
+                return;
+            if (mouseEvent.getButton() == MouseButton.PRIMARY)
+                Submit(() -> Reveal(row, col));
+            else if (mouseEvent.getButton() == MouseButton.SECONDARY)
+                Submit(() -> Toggle(row, col));
+        }
+
+
+        void Resize() {
+            canvas.setWidth(totCols * cellSize);
+            canvas.setHeight(HeaderHeight() + totRows * cellSize);
+            fullRedraw = true;
+        }
+        private int HeaderHeight() { return Math.max(8, HEADER * cellSize / 16); }
+
+        // Draws the header when a counter changed and only the cells that differ from the last frame
+        void Draw(long now) {
+            Frame current = frame;
+            int time = (current.started() == 0) ? 0 : (int) Math.min(999, ((current.ended() != 0 ? current.ended() : now) - current.started()) / 1_000_000_000L);
+            if (current == drawn && time == drawnTime && !fullRedraw)
+                return;
+
+            GraphicsContext gc = canvas.getGraphicsContext2D();
+            int header = HeaderHeight();
+            if (fullRedraw || drawn == null || time != drawnTime || current.minesRemaining() != drawn.minesRemaining()
+                    || current.lost() != drawn.lost() || current.won() != drawn.won()) {
+                DrawHeader(gc, header, current, time);
+                drawnTime = time;
+            }
+
+            CellSprites sprites = ImageManager.getCellSprites(cellSize);
+            byte[] cells = current.cells();
+            for (int i = 0; i < cells.length; i++) {
+                if (fullRedraw || drawnCells[i] != cells[i]) {
+                    int r = i / totCols, c = i % totCols;
+                    gc.drawImage(sprites.ImageOf(cells[i]), c * cellSize, header + r * cellSize, cellSize, cellSize);
+                }
+            }
+            drawn      = current;
+            drawnCells = cells;
+            fullRedraw = false;
+        }
+        private void DrawHeader(GraphicsContext gc, int header, Frame current, int time) {
+            double scale = header / (double) HEADER;
+            double digitWidth = 13 * scale, digitHeight = 23 * scale, top = scale;
+            gc.clearRect(0, 0, canvas.getWidth(), header);
+
+            DrawDigits(gc, current.minesRemaining(), 0, top, digitWidth, digitHeight);
+            DrawDigits(gc, time, canvas.getWidth() - 3 * digitWidth, top, digitWidth, digitHeight);
+
+            Image face = current.lost() ? ImageManager.getDeadImage() : current.won() ? ImageManager.getSwagImage() : ImageManager.getSmileImage();
+            double faceSize = 24 * scale;
+            gc.drawImage(face, (canvas.getWidth() - faceSize) / 2, 0, faceSize, faceSize);
+        }
+        // Same digits as the counters of the game, with the minus sign for values out of range
+        private void DrawDigits(GraphicsContext gc, int value, double x, double y, double width, double height) {
+            int num = Math.abs(value);
+            Image[] images = {
+                (num > 99) ? ImageManager.getDigitImage(num / 100 % 10) : ImageManager.getDigitOffImage(),
+                (num > 9)  ? ImageManager.getDigitImage(num / 10 % 10) : ImageManager.getDigitOffImage(),
+                ImageManager.getDigitImage(num % 10)
+            };
+            if (value < 0)
+                images[(num > 9) ? 0 : 1] = ImageManager.getDigitMinusImage();
+            for (int i = 0; i < 3; i++)
+                gc.drawImage(images[i], x + i * width, y, width, height);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+// Window around a BoardWall: autoplay switch, new games for every board and the frame rate
+public class BoardWallWindow extends Stage {
+    private final BoardWall wall;
+    private final Label status;
+    private final Timeline statusRefresh;
+
+
+    public BoardWallWindow(Window owner, int totBoards, int totRows, int totCols, int totMines) {
+        super();
+
+        wall = new BoardWall(totBoards, totRows, totCols, totMines);
+
+        CheckBox autoplay = new CheckBox("Autoplay");
+        Button newGames   = new Button("New games");
+        autoplay.setOnAction(e -> wall.setAutoplay(autoplay.isSelected()));
+        newGames.setOnAction(e -> wall.Reset());
+
+        status = new Label();
+        HBox bar = new HBox(8, newGames, autoplay, status);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(6));
+
+        BorderPane root = new BorderPane(wall);
+        root.setTop(bar);
+        BorderPane.setMargin(wall, new Insets(6));
+
+        statusRefresh = new Timeline(new KeyFrame(Duration.millis(500), e -> UpdateStatus()));
+        statusRefresh.setCycleCount(Timeline.INDEFINITE);
+        statusRefresh.play();
+
+        this.initOwner(owner);
+        this.setTitle("Board wall");
+        this.setScene(new Scene(root, 1280, 800));
+        this.setOnHidden(e -> {
+            statusRefresh.stop();
+            wall.Shutdown();
+        });
+        UpdateStatus();
+    }
+
+
+    private void UpdateStatus() {
+        status.setText(wall.getTotBoards() + " boards " + wall.getTotCols() + "x" + wall.getTotRows() + "   " + wall.getFramesPerSecond() + " fps");
+    }
+}
@@ -0,0 +1,101 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.SplittableRandom;
+
+// Headless player: flags the cells that must be mines, chords the cells whose mines are all flagged
+// and guesses a random cell when nothing can be deduced
+public class Bot {
+    public interface Move {
+        Board.Result Apply(Board board, int row, int col);
+    }
+
+
+    private final Board board;
+    private final SplittableRandom random;
+    private Move click;
+
+
+    public Board getBoard() { return board; }
+
+    // Wraps every reveal and chord, used to measure or record them
+    public void setClick(Move click) { this.click = click; }
+
+
+    public Bot(Board board, long seed) {
+        this.board  = board;
+        this.random = new SplittableRandom(seed);
+        this.click  = Board::Click;
+    }
+
+
+
+    // Plays the game until it is won or lost, starting from the centre of the board
+    public Board.Result Play() {
+        Board.Result result = click.Apply(board, board.getTotRows() / 2, board.getTotCols() / 2);
+        while (result == Board.Result.NONE) {
+            result = Step();
+        }
+        return result;
+    }
+
+    // Makes every move that can be deduced from single cells, or a random guess if there is none
+    public Board.Result Step() {
+        boolean progress = false;
+        for (int r = 0; r < board.getTotRows(); r++) {
+            for (int c = 0; c < board.getTotCols(); c++) {
+                if (!board.isShown(r, c) || board.getTotNearMines(r, c) == 0)
+                    continue;
+
+                int flags = 0, hidden = 0;
+                for (int i = r - 1; i <= r + 1; i++) {
+                    for (int j = c - 1; j <= c + 1; j++) {
+                        if (!board.IsInBounds(i, j))
+                            continue;
+                        if (board.isFlag(i, j))
+                            flags++;
+                        else if (!board.isShown(i, j))
+                            hidden++;
+                    }
+                }
+                if (hidden == 0)
+                    continue;
+
+                int mines = board.getTotNearMines(r, c);
+                if (flags == mines) {
+                    Board.Result result = click.Apply(board, r, c);
+                    if (result != Board.Result.NONE)
+                        return result;
+                    progress = true;
+                }
+                else if (flags + hidden == mines) {
+                    FlagAround(r, c);
+                    progress = true;
+                }
+            }
+        }
+
+        return progress ? Board.Result.NONE : Guess();
+    }
+
+    private void FlagAround(int row, int col) {
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if (board.IsInBounds(r, c)) {
+                    // Question marks are never set by the bot, so one toggle turns an empty cell into a flag
+                    if (board.getState(r, c) == Board.State.EMPTY)
+                        board.ToggleState(r, c);
+                }
+            }
+        }
+    }
+
+    private Board.Result Guess() {
+        int row, col;
+        do {
+            row = random.nextInt(board.getTotRows());
+            col = random.nextInt(board.getTotCols());
+        } while (!board.CanBeShown(row, col));
+
+        return click.Apply(board, row, col);
+    }
+}
@@ -0,0 +1,57 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.scene.image.Image;
+
+// The images of the board cells at one size in pixels
+public class CellSprites {
+    // Order of the cells in the atlas, after the nine numbers
+    static final int EMPTY         = 9;
+    static final int EMPTY_PRESSED = 10;
+    static final int MINE          = 11;
+    static final int EXPLODED      = 12;
+    static final int FLAG          = 13;
+    static final int QUESTION_MARK = 14;
+    static final int COUNT         = 15;
+
+    private final int size;
+    private final Image[] images;
+
+
+    public int getSize() { return size; }
+    public Image getNumImage(int num) { return (num >= 0 && num < EMPTY) ? images[num] : null; }
+    public Image getEmptyImage() { return images[EMPTY]; }
+    public Image getEmptyPressedImage() { return images[EMPTY_PRESSED]; }
+    public Image getMineImage() { return images[MINE]; }
+    public Image getExplodedImage() { return images[EXPLODED]; }
+    public Image getFlagImage() { return images[FLAG]; }
+    public Image getQuestionMarkImage() { return images[QUESTION_MARK]; }
+
+
+    CellSprites(int size, Image[] images) {
+        this.size   = size;
+        this.images = images;
+    }
+
+
+
+    public Image ImageOf(Board board, int row, int col) {
+        return ImageOf(board.getCells()[board.Index(row, col)]);
+    }
+    // Same as above from the packed cell byte, for views drawing from a copy of the cells.
+    // The cases are the ordinals of Board.State
+    Image ImageOf(byte cell) {
+        return switch ((cell & Board.STATE_MASK) >>> Board.STATE_SHIFT) {
+            case 3 -> {
+                if ((cell & Board.EXPLODED_BIT) != 0)
+                    yield images[EXPLODED];
+                else if ((cell & Board.MINE_BIT) != 0)
+                    yield images[MINE];
+                else
+                    yield images[cell & Board.NEAR_MINES_MASK];
+            }
+            case 1  -> images[FLAG];
+            case 2  -> images[QUESTION_MARK];
+            default -> images[EMPTY];
+        };
+    }
+}
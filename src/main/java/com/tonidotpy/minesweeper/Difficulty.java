@@ -0,0 +1,38 @@
+package com.tonidotpy.minesweeper;
+
+// Standard board sizes of the game, any other size is a custom one
+public enum Difficulty {
+    BEGINNER("Beginner", 9, 9, 10),
+    INTERMEDIATE("Intermediate", 16, 16, 40),
+    EXPERT("Expert", 16, 30, 99);
+
+    private final String name;
+    private final int totRows, totCols, totMines;
+
+
+    public String getName() { return name; }
+    public int getTotRows() { return totRows; }
+    public int getTotCols() { return totCols; }
+    public int getTotMines() { return totMines; }
+
+
+    Difficulty(String name, int totRows, int totCols, int totMines) {
+        this.name     = name;
+        this.totRows  = totRows;
+        this.totCols  = totCols;
+        this.totMines = totMines;
+    }
+
+
+    // Preset with exactly this size, null for a custom board
+    public static Difficulty Of(int totRows, int totCols, int totMines) {
+        for (Difficulty difficulty : values()) {
+            if (difficulty.totRows == totRows && difficulty.totCols == totCols && difficulty.totMines == totMines)
+                return difficulty;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() { return name + " (" + totCols + "x" + totRows + ", " + totMines + " mines)"; }
+}
@@ -0,0 +1,102 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.Arrays;
+
+// Cells whose view is out of date: they are collected while the board changes and
+// redrawn all together on the next pulse, so a whole cascade costs a single render pass
+public class DirtyCells extends AnimationTimer {
+    public interface Renderer {
+        void Render(int index);
+    }
+
+
+    private final Renderer renderer;
+    private final int capacity;
+    private final long[] marked;
+    private int[] cells;
+    private int totCells;
+    // Every cell is out of date, set in O(1) when the whole board changes
+    private boolean all;
+    private boolean running;
+    // Optional time and size of every flush
+    private LatencyHistogram flushTime, flushCells;
+
+
+    public int getTotCells() { return all ? capacity : totCells; }
+    public void setMetrics(Metrics metrics) {
+        flushTime  = (metrics != null) ? metrics.getTimer("view.flush") : null;
+        flushCells = (metrics != null) ? metrics.getDistribution("view.flush.cells") : null;
+    }
+
+
+    public DirtyCells(int capacity, Renderer renderer) {
+        super();
+
+        this.renderer = renderer;
+        this.capacity = capacity;
+        this.marked   = new long[(capacity + 63) >>> 6];
+        this.cells    = new int[Math.min(capacity, 64)];
+        this.totCells = 0;
+        this.running  = false;
+    }
+
+
+    public void Mark(int index) {
+        if (all)
+            return;
+        long bit = 1L << index;
+        if ((marked[index >>> 6] & bit) != 0)
+            return;
+
+        marked[index >>> 6] |= bit;
+        if (totCells == cells.length)
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        cells[totCells++] = index;
+
+        if (!running) {
+            running = true;
+            start();
+        }
+    }
+
+    public void MarkAll() {
+        all = true;
+        if (!running) {
+            running = true;
+            start();
+        }
+    }
+
+    @Override
+    public void handle(long now) {
+        Flush();
+    }
+
+    public void Flush() {
+        long start = (flushTime != null) ? System.nanoTime() : 0;
+        if (flushTime != null)
+            flushCells.Record(getTotCells());
+
+        if (all) {
+            for (int index = 0; index < capacity; index++)
+                renderer.Render(index);
+            Arrays.fill(marked, 0L);
+            all = false;
+        }
+        else {
+            for (int i = 0; i < totCells; i++) {
+                int index = cells[i];
+                marked[index >>> 6] &= ~(1L << index);
+                renderer.Render(index);
+            }
+        }
+        totCells = 0;
+
+        running = false;
+        stop();
+        if (flushTime != null)
+            flushTime.Record(System.nanoTime() - start);
+    }
+}
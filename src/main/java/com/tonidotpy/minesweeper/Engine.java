@@ -0,0 +1,267 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs the moves of a board on a thread of its own. Commands can be sent from any thread, they go
+// through a lock free queue and are applied in order to a private copy of the board. What each one
+// changed is published as an update (the changed cell bytes, and the mine bitboard after the
+// generation) and applied to the followed board by the executor given at creation, the FX thread for
+// the game. Long cascades and the generation of huge boards never block the thread that renders.
+// The followed board may still be changed directly (new game, undo, loading): before the next command
+// the engine rebuilds that position on its own thread, from the seed or from the journal that
+// recorded it, and drops the updates of the commands sent before the change.
+// The engine board records into a registry of its own, which travels with the updates and is added
+// to the registry of the followed board by the executor, so each registry stays on a single thread
+public class Engine {
+    public interface ResultListener {
+        void Finished(Board.Result result);
+    }
+
+    // Version counts the updates published by the engine, epoch the copies of the followed board
+    record Update(int epoch, long version, Bitboard layout, int[] indices, byte[] values, Board.Move move, int row, int col, Board.Result result, Metrics metrics) {}
+
+    private static final int[] NO_INDICES = new int[0];
+    private static final byte[] NO_VALUES = new byte[0];
+
+
+    // Engine side, only touched by the engine thread once started
+    private final Board board;
+    private int epoch;
+    private long version;
+    private final long[] marked;
+    private int[] changed;
+    private int totChanged;
+    private Board.Move move;
+    private int moveRow, moveCol;
+    private Metrics metrics;
+
+    private final ConcurrentLinkedQueue<Runnable> commands;
+    private final ConcurrentLinkedQueue<Update> updates;
+    private final AtomicBoolean drainScheduled;
+    // A cleared registry handed back by the executor, taken by the engine on its next update
+    private final AtomicReference<Metrics> spare;
+    private final Executor publisher;
+    private final Thread thread;
+    private volatile boolean running;
+
+    // Followed side, only touched through the publisher
+    private final Board view;
+    private int viewEpoch;
+    private boolean applying;
+    private boolean outOfSync;
+    private ResultListener resultListener;
+    private Journal journal;
+
+
+    public Board getBoard() { return view; }
+    public void setResultListener(ResultListener resultListener) { this.resultListener = resultListener; }
+    // The journal recording the followed board, whose positions the engine can rebuild by itself
+    public void setJournal(Journal journal) { this.journal = journal; }
+
+
+    public Engine(Board view, Executor publisher) {
+        this.view      = view;
+        this.publisher = publisher;
+        this.board     = Copy(view);
+        if (view.getMetrics() != null) {
+            metrics = new Metrics();
+            board.setMetrics(metrics);
+        }
+        spare = new AtomicReference<>(new Metrics());
+
+        marked  = new long[(view.getTotCells() + 63) >>> 6];
+        changed = new int[64];
+        board.AddListener(new Board.Listener() {
+            @Override
+            public void CellChanged(int row, int col) { Mark(board.Index(row, col)); }
+            @Override
+            public void Moved(Board.Move move, int row, int col) {
+                Engine.this.move = move;
+                moveRow = row;
+                moveCol = col;
+            }
+        });
+        view.AddListener(new Board.Listener() {
+            @Override
+            public void CellChanged(int row, int col) { ChangedOutside(); }
+            @Override
+            public void BoardReset() { ChangedOutside(); }
+        });
+
+        commands = new ConcurrentLinkedQueue<>();
+        updates  = new ConcurrentLinkedQueue<>();
+        drainScheduled = new AtomicBoolean();
+
+        running = true;
+        thread  = new Thread(this::Run, "engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+
+    public void Click(int row, int col) {
+        Send(() -> {
+            boolean generated = board.isGenerated();
+            Publish(board.Click(row, col), !generated && board.isGenerated());
+        });
+    }
+    public void ToggleState(int row, int col) {
+        Send(() -> {
+            board.ToggleState(row, col);
+            Publish(Board.Result.NONE, false);
+        });
+    }
+
+    // Copy of the cells once the commands sent so far are applied, made on the engine thread
+    public CompletableFuture<byte[]> Snapshot() {
+        CompletableFuture<byte[]> cells = new CompletableFuture<>();
+        Send(() -> cells.complete(board.getCells().clone()));
+        return cells;
+    }
+
+    public void Shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void Send(Runnable command) {
+        if (outOfSync)
+            Sync();
+        commands.offer(command);
+        LockSupport.unpark(thread);
+    }
+    private void Run() {
+        while (running) {
+            Runnable command = commands.poll();
+            if (command == null)
+                LockSupport.park(this);
+            else
+                command.run();
+        }
+    }
+
+
+    // Engine side: cells changed by the current command, each one once
+    private void Mark(int index) {
+        long bit = 1L << index;
+        if ((marked[index >>> 6] & bit) != 0)
+            return;
+
+        marked[index >>> 6] |= bit;
+        if (totChanged == changed.length)
+            changed = Arrays.copyOf(changed, changed.length * 2);
+        changed[totChanged++] = index;
+    }
+    private void Publish(Board.Result result, boolean generated) {
+        Bitboard layout = null;
+        int[] indices = NO_INDICES;
+        byte[] values = NO_VALUES;
+        if (generated) {
+            // 1 bit per cell, the followed board counts the near mines from it
+            layout = new Bitboard(board.getTotRows(), board.getTotCols());
+            layout.CopyFrom(board.getMineBits());
+        }
+        if (totChanged > 0) {
+            indices = Arrays.copyOf(changed, totChanged);
+            values  = new byte[totChanged];
+            byte[] cells = board.getCells();
+            for (int i = 0; i < totChanged; i++)
+                values[i] = cells[indices[i]];
+        }
+        for (int i = 0; i < totChanged; i++)
+            marked[changed[i] >>> 6] = 0;
+        totChanged = 0;
+
+        // The metrics recorded by the command go with its update. The registry sent before comes back
+        // cleared, a new one is only needed while the executor is behind
+        Metrics recorded = metrics;
+        if (recorded != null) {
+            Metrics next = spare.getAndSet(null);
+            metrics = (next != null) ? next : new Metrics();
+            board.setMetrics(metrics);
+        }
+
+        if (layout != null || indices.length > 0 || move != null || result != Board.Result.NONE || recorded != null) {
+            updates.offer(new Update(epoch, ++version, layout, indices, values, move, moveRow, moveCol, result, recorded));
+            if (drainScheduled.compareAndSet(false, true))
+                publisher.execute(this::Drain);
+        }
+        move = null;
+    }
+
+
+    // Followed side: applies every update of the current epoch, in order
+    private void Drain() {
+        drainScheduled.set(false);
+        Update update;
+        while ((update = updates.poll()) != null) {
+            if (update.metrics() != null) {
+                if (view.getMetrics() != null)
+                    view.getMetrics().Add(update.metrics());
+                update.metrics().Reset();
+                spare.set(update.metrics());
+            }
+            if (update.epoch() != viewEpoch)
+                continue;
+
+            applying = true;
+            try {
+                view.Apply(update.layout(), update.indices(), update.values(), update.move(), update.row(), update.col());
+            }
+            finally {
+                applying = false;
+            }
+            if (update.result() != Board.Result.NONE && resultListener != null)
+                resultListener.Finished(update.result());
+        }
+    }
+    private void ChangedOutside() {
+        if (applying || outOfSync)
+            return;
+        outOfSync = true;
+        viewEpoch++;
+    }
+    private void Sync() {
+        // A view just reset is described by its seed alone and a position of its journal by a few moves,
+        // both rebuilt on the engine thread. Only a board changed outside any journal is copied here
+        boolean clean = view.isClean();
+        Journal.Replay replay = (!clean && journal != null && journal.getBoard() == view) ? journal.getReplay() : null;
+        Board copy = (clean || replay != null) ? null : Copy(view);
+        long seed = view.getSeed();
+        int target = viewEpoch;
+        outOfSync = false;
+        commands.offer(() -> {
+            if (replay != null) {
+                // Moves already counted when they were played
+                board.setMetrics(null);
+                replay.ApplyTo(board);
+                board.setMetrics(metrics);
+                // As the game leaves a lost board
+                if (board.isLost())
+                    board.ShowMines();
+            }
+            else if (copy != null)
+                board.CopyFrom(copy);
+            else
+                board.Reset(seed);
+            for (int i = 0; i < totChanged; i++)
+                marked[changed[i] >>> 6] = 0;
+            totChanged = 0;
+            move  = null;
+            epoch = target;
+        });
+    }
+
+    private static Board Copy(Board source) {
+        Board copy = new Board(source.getTotRows(), source.getTotCols(), source.getTotMines(), source.getSeed());
+        copy.CopyFrom(source);
+        return copy;
+    }
+}
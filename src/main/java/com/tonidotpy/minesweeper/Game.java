@@ -1,6 +1,7 @@
 package com.tonidotpy.minesweeper;
 
 import javafx.animation.Animation;
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Platform;
@@ -9,114 +10,181 @@ import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.SceneAntialiasing;
 import javafx.scene.control.Alert;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextInputDialog;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.input.MouseButton;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.stage.FileChooser;
 import javafx.util.Duration;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class Game extends VBox {
     private MenuBar menuBar;
     private BorderPane controls;
     private ImageView[] scoreView;
     private ImageView generate;
     private ImageView[] timeView;
-    private Grid grid;
+    private BoardView grid;
+    private Solver solver;
+    private Probabilities probabilities;
+    private boolean showProbabilities, probabilitiesRequested;
+    private Journal journal;
+    private ReplayViewer replayViewer;
+    // Plays the moves of the board off the FX thread, replaced with the board
+    private Engine engine;
+
+    // Boards played recently with their views, switching back to one of these sizes reuses them
+    // instead of building the nodes and the storage again
+    private record Size(int rows, int cols, int mines) {}
+    private record View(BoardView grid, Engine engine, Probabilities probabilities) {}
+    private final LinkedHashMap<Size, View> views = new LinkedHashMap<>(16, 0.75f, true);
+    private static final long MAX_POOLED_CELLS = 4_000_000;
+
+    // Timings of the board and of the view, shared by every board of the game
+    private final Metrics metrics = new Metrics();
+    private Label metricsOverlay;
+    private Timeline metricsRefresh;
 
 
     private final double menuHeightPercent = 0.05;
     private final double controlsHeightPercent = 0.07;
     private final double paddingPercent = 0.3;
 
+    private static final int HUGE_BOARD_CELLS = 100 * 100;
+    // Custom board as typed in its dialog, "columns x rows, mines"
+    private static final Pattern CUSTOM_BOARD = Pattern.compile("(\\d+)\\s*x\\s*(\\d+)\\s*,\\s*(\\d+)");
+
 
-    private int score;
     private final Timeline timeLine;
     private int time;
+    // The counter shows whole seconds, the statistics get the time from the first click on
+    private long startNanos;
+    // Primary clicks of the game, reveals and chords alike. Unlike the journal position, undo does
+    // not take them back and toggles do not count
+    private int clicks;
+
+    // Every finished game goes to the statistics once, even if undone and finished again
+    private final Statistics statistics;
+    private boolean recorded, statisticsFailed;
+
+    // Width and height changes are applied together, at most once per pulse
+    private final AnimationTimer resizeTimer;
+    private double resizedWidth, resizedHeight;
+    private double controlsSize;
+
+    // Boards without guesses are searched off the FX thread, only the latest request is applied
+    private boolean noGuess;
+    private NoGuessGenerator generator;
+    private long noGuessRequest;
+    // Whether the current game came from the generator, whatever the menu says: huge boards, games
+    // with a chosen seed and loaded ones are made without it. Cleared with every new or loaded game
+    private boolean noGuessGame;
 
 
     public Game() {
+        this(true);
+    }
+    // Without a board the window can be shown first, the board comes later from SetGridAsync
+    public Game(boolean withBoard) {
         super();
 
         this.setCursor(Cursor.HAND);
 
-        ChangeListener<Number> resizeListener = (observable, oldValue, newValue) -> Resize();
+        this.resizeTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                if (getWidth() != resizedWidth || getHeight() != resizedHeight)
+                    Resize();
+            }
+        };
+        ChangeListener<Number> resizeListener = (observable, oldValue, newValue) -> resizeTimer.start();
         this.widthProperty().addListener(resizeListener);
         this.heightProperty().addListener(resizeListener);
 
-        this.score = 0;
         this.time  = 0;
         this.timeLine = new Timeline(
                 new KeyFrame(Duration.seconds(1), actionEvent -> {
                     UpdateDigitsView(timeView, ++time);
                     if (time > 999)
-                        Lose(null);
+                        Lose();
                 })
         );
         this.timeLine.setCycleCount(Animation.INDEFINITE);
         this.timeLine.setAutoReverse(false);
 
 
+        this.statistics = new Statistics();
+
         VBox.setVgrow(this, Priority.ALWAYS);
         this.setAlignment(Pos.TOP_CENTER);
 
         SetMenu();
         SetControls();
-        SetGrid(15, 15, 50);
-
-        SetScore();
-        SetTime();
+        if (withBoard)
+            SetGrid(15, 15, 50);
     }
 
+    // The board keeps the flag count, the view just follows it
     private void SetScore() {
-        for (var row : grid.getGrid()) {
-            for (var cell : row) {
-                EventHandler<MouseEvent> eventHandler = mouseEvent -> {
-                    if (mouseEvent.getButton() == MouseButton.SECONDARY) {
-                        if (cell.getState() == Cell.State.EMPTY)
-                            score--;
-                        else if (cell.isFlag())
-                            score++;
-
-                        UpdateDigitsView(scoreView, score);
-                    }
-                };
-                cell.addEventHandler(MouseEvent.MOUSE_CLICKED, eventHandler);
+        Board board = grid.getBoard();
+        board.AddListener(new Board.Listener() {
+            @Override
+            public void CellChanged(int row, int col) {}
+            @Override
+            public void CountersChanged() {
+                UpdateDigitsView(scoreView, board.getTotMinesRemaining());
             }
-        }
-
-        ResetScore();
-    }
-    public void ResetScore() {
-        score = grid.getTotMines();
-        UpdateDigitsView(scoreView, score);
+        });
     }
     private void SetTime() {
-        for (var row : grid.getGrid()) {
-            for (var cell : row) {
-                EventHandler<MouseEvent> eventHandler = mouseEvent -> {
-                    if (mouseEvent.getButton() == MouseButton.PRIMARY) {
-                        if (timeLine.getStatus() != Animation.Status.RUNNING) {
-                            UpdateDigitsView(timeView, time);
-                            timeLine.play();
-                        }
-                    }
-                };
-                cell.addEventHandler(MouseEvent.MOUSE_CLICKED, eventHandler);
+        grid.getInput().AddListener((action, row, col) -> {
+            // Runs after the click, which may have already ended the game
+            Board board = grid.getBoard();
+            if (action == BoardInput.Action.PRIMARY && !board.isLost() && !board.isWon()) {
+                clicks++;
+                if (timeLine.getStatus() != Animation.Status.RUNNING) {
+                    startNanos = System.nanoTime();
+                    UpdateDigitsView(timeView, time);
+                    timeLine.play();
+                }
             }
-        }
+        });
     }
     private void ResetTime() {
         timeLine.stop();
+        startNanos  = 0;
+        clicks      = 0;
+        recorded    = false;
+        noGuessGame = false;
         UpdateDigitsView(timeView, time);
         time = 0;
     }
@@ -155,13 +223,50 @@ public class Game extends VBox {
 
 
     public void Reset() {
+        if (noGuess && grid.getBoard().getTotCells() <= HUGE_BOARD_CELLS)
+            NewNoGuessGame();
+        else
+            Reset(Board.NewSeed());
+    }
+    // Starts a board that can be solved without guessing, already opened from its centre
+    private void NewNoGuessGame() {
+        Board board = grid.getBoard();
+        Reset(board.getSeed());
+        grid.setDisable(true);
+
+        long request = ++noGuessRequest;
+        generator.Next(board.getTotRows(), board.getTotCols(), board.getTotMines()).whenComplete((seed, error) -> Platform.runLater(() -> {
+            if (request != noGuessRequest || grid.getBoard() != board)
+                return;
+            if (error != null) {
+                grid.setDisable(false);
+                ShowError(error.getMessage());
+                return;
+            }
+
+            Reset(seed);
+            noGuessGame = true;
+            if (board.Click(NoGuessGenerator.StartRow(board.getTotRows()), NoGuessGenerator.StartCol(board.getTotCols())) == Board.Result.WIN)
+                Win();
+        }));
+    }
+    private void SetNoGuess(boolean noGuess) {
+        this.noGuess = noGuess;
+        if (noGuess && generator == null)
+            generator = new NoGuessGenerator();
+        Reset();
+    }
+    public void Reset(long seed) {
         generate.setImage(prevSmileImage = ImageManager.getSmileImage());
 
-        grid.Reset();
-        ResetScore();
+        grid.Reset(seed);
         ResetTime();
+        StartJournal();
     }
     public void Resize() {
+        resizedWidth  = this.getWidth();
+        resizedHeight = this.getHeight();
+
         ResizeMenu();
         ResizeControls();
         ResizeGrid();
@@ -172,17 +277,351 @@ public class Game extends VBox {
         menuBar = new MenuBar();
         Menu options = new Menu("Options");
         MenuItem newGame = new MenuItem("New game");
+        MenuItem newSeed = new MenuItem("New game with seed...");
+        MenuItem save    = new MenuItem("Save board...");
+        MenuItem load    = new MenuItem("Load board...");
         MenuItem quit    = new MenuItem("Exit");
         newGame.setOnAction(e -> Reset() );
+        newSeed.setOnAction(e -> NewGameWithSeed());
+        save.setOnAction(e -> SaveBoard());
+        load.setOnAction(e -> LoadBoard());
         quit.setOnAction(e -> Platform.exit());
 
+        MenuItem undo    = new MenuItem("Undo");
+        MenuItem redo    = new MenuItem("Redo");
+        MenuItem saveReplay = new MenuItem("Save replay...");
+        MenuItem loadReplay = new MenuItem("Load replay...");
+        MenuItem replay     = new MenuItem("Replay viewer...");
+        MenuItem stats      = new MenuItem("Statistics...");
+        undo.setAccelerator(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN));
+        redo.setAccelerator(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN));
+        undo.setOnAction(e -> Undo());
+        redo.setOnAction(e -> Redo());
+        saveReplay.setOnAction(e -> SaveReplay());
+        loadReplay.setOnAction(e -> LoadReplay());
+        replay.setOnAction(e -> ShowReplay());
+        stats.setOnAction(e -> ShowStatistics());
+
+        MenuItem hint    = new MenuItem("Hint");
+        hint.setOnAction(e -> ShowHint());
+        CheckMenuItem heatMap = new CheckMenuItem("Show probabilities");
+        heatMap.setOnAction(e -> ShowProbabilities(heatMap.isSelected()));
+        CheckMenuItem noGuessing = new CheckMenuItem("No guessing");
+        noGuessing.setOnAction(e -> SetNoGuess(noGuessing.isSelected()));
+
         options.getItems().add(newGame);
+        options.getItems().add(undo);
+        options.getItems().add(redo);
+        options.getItems().add(hint);
+        options.getItems().add(heatMap);
+        options.getItems().add(noGuessing);
+        options.getItems().add(newSeed);
+        options.getItems().add(save);
+        options.getItems().add(load);
+        options.getItems().add(saveReplay);
+        options.getItems().add(loadReplay);
+        options.getItems().add(replay);
+        options.getItems().add(stats);
         options.getItems().add(quit);
 
+        Menu board = new Menu("Board");
+        for (Difficulty difficulty : Difficulty.values()) {
+            MenuItem preset = new MenuItem(difficulty.toString());
+            preset.setOnAction(e -> SetGrid(difficulty.getTotRows(), difficulty.getTotCols(), difficulty.getTotMines()));
+            board.getItems().add(preset);
+        }
+        MenuItem custom   = new MenuItem("Custom...");
+        custom.setOnAction(e -> NewCustomGame());
+        MenuItem standard = new MenuItem("Standard (15x15)");
+        MenuItem huge     = new MenuItem("Huge (10000x10000)");
+        standard.setOnAction(e -> SetGrid(15, 15, 50));
+        MenuItem infinite = new MenuItem("Infinite...");
+        huge.setOnAction(e -> SetGrid(10000, 10000, 16_000_000));
+        infinite.setOnAction(e -> new InfiniteWindow(this.getScene().getWindow()).show());
+        MenuItem wall     = new MenuItem("Board wall (64 x 30x16)...");
+        wall.setOnAction(e -> new BoardWallWindow(this.getScene().getWindow(), 64, 16, 30, 99).show());
+
+        board.getItems().add(custom);
+        board.getItems().add(standard);
+        board.getItems().add(huge);
+        board.getItems().add(infinite);
+        board.getItems().add(wall);
+
+        Menu debug = new Menu("Debug");
+        CheckMenuItem overlay = new CheckMenuItem("Metrics overlay");
+        MenuItem export       = new MenuItem("Export metrics...");
+        MenuItem clear        = new MenuItem("Reset metrics");
+        overlay.setOnAction(e -> ShowMetrics(overlay.isSelected()));
+        export.setOnAction(e -> ExportMetrics());
+        clear.setOnAction(e -> metrics.Reset());
+
+        debug.getItems().add(overlay);
+        debug.getItems().add(export);
+        debug.getItems().add(clear);
+
         menuBar.getMenus().add(options);
+        menuBar.getMenus().add(board);
+        menuBar.getMenus().add(debug);
 
         this.getChildren().add(menuBar);
     }
+    // Highlights a safe cell, or the least likely mine when nothing can be deduced
+    private void ShowHint() {
+        Board board = grid.getBoard();
+        if (!board.isGenerated() || board.isLost() || board.isWon())
+            return;
+
+        // The solver follows the board from its creation on, so it is kept until the board changes
+        if (solver == null)
+            solver = new Solver(board);
+
+        Solver.Hint hint = solver.getHint();
+        int cell = hint.getGuess();
+        // Without a safe cell the guess comes from the exact probabilities, unless the interior is safer.
+        // Finding the frontier scans the whole board, the huge one keeps the guess of the solver
+        if (!hint.isSafe() && board.getTotCells() <= HUGE_BOARD_CELLS) {
+            Probabilities.Result result = probabilities.Calculate();
+            int best = result.getBest();
+            if (best >= 0 && !(result.getInteriorProbability() < result.getProbability(best)))
+                cell = best;
+        }
+        if (cell >= 0)
+            grid.Highlight(cell / board.getTotCols(), cell % board.getTotCols(), hint.isSafe());
+    }
+
+    // Heat map of the mine probabilities, computed again once per action while it is shown
+    private void ShowProbabilities(boolean show) {
+        showProbabilities = show;
+        UpdateProbabilities();
+    }
+    private void SetProbabilities() {
+        Board board = grid.getBoard();
+        board.AddListener(new Board.Listener() {
+            @Override
+            public void CellChanged(int row, int col) {}
+            @Override
+            public void BoardReset() { RequestProbabilities(); }
+            @Override
+            public void CountersChanged() { RequestProbabilities(); }
+        });
+    }
+    private void RequestProbabilities() {
+        if (showProbabilities && !probabilitiesRequested) {
+            probabilitiesRequested = true;
+            Platform.runLater(() -> {
+                probabilitiesRequested = false;
+                UpdateProbabilities();
+            });
+        }
+    }
+    private void UpdateProbabilities() {
+        // Finding the frontier scans the whole board, too slow for the huge one
+        Board board = grid.getBoard();
+        boolean show = showProbabilities && board.getTotCells() <= HUGE_BOARD_CELLS;
+        grid.ShowProbabilities(show ? probabilities.Calculate() : null);
+    }
+
+    private void NewCustomGame() {
+        Board current = grid.getBoard();
+        TextInputDialog dialog = new TextInputDialog(current.getTotCols() + "x" + current.getTotRows() + ", " + current.getTotMines());
+        dialog.setTitle("Custom board");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Columns x rows, mines:");
+        dialog.showAndWait().ifPresent(text -> {
+            Matcher values = CUSTOM_BOARD.matcher(text.trim());
+            try {
+                if (!values.matches())
+                    throw new NumberFormatException();
+                int cols = Integer.parseInt(values.group(1)), rows = Integer.parseInt(values.group(2)), mines = Integer.parseInt(values.group(3));
+                // The first click opens a 3x3 area, the rest must be able to hold every mine
+                if (rows < 1 || cols < 1 || (long) rows * cols > 10000L * 10000L || mines < 1 || mines > (long) rows * cols - 9)
+                    ShowError("Invalid board: " + text);
+                else
+                    SetGrid(rows, cols, mines);
+            }
+            catch (NumberFormatException e) {
+                ShowError("Invalid board: " + text);
+            }
+        });
+    }
+
+    private void NewGameWithSeed() {
+        TextInputDialog dialog = new TextInputDialog(Long.toString(grid.getBoard().getSeed()));
+        dialog.setTitle("New game");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Seed:");
+        dialog.showAndWait().ifPresent(text -> {
+            try {
+                Reset(Long.parseLong(text.trim()));
+            }
+            catch (NumberFormatException e) {
+                ShowError("Invalid seed: " + text);
+            }
+        });
+    }
+    private void SaveBoard() {
+        File file = BoardChooser().showSaveDialog(this.getScene().getWindow());
+        if (file == null)
+            return;
+
+        try {
+            BoardFile.Write(grid.getBoard(), file.toPath());
+        }
+        catch (IOException e) {
+            ShowError("Cannot save the board: " + e.getMessage());
+        }
+    }
+    private void LoadBoard() {
+        File file = BoardChooser().showOpenDialog(this.getScene().getWindow());
+        if (file == null)
+            return;
+
+        try {
+            SetGrid(BoardFile.Read(file.toPath()));
+        }
+        catch (IOException e) {
+            ShowError("Cannot load the board: " + e.getMessage());
+        }
+    }
+    // The journal records every move of the current board, undo and replays move through its positions
+    private void StartJournal() {
+        if (journal != null)
+            journal.Detach();
+        journal = new Journal(grid.getBoard());
+        engine.setJournal(journal);
+        if (replayViewer != null && replayViewer.isShowing())
+            replayViewer.setJournal(journal);
+    }
+    private void Undo() {
+        if (journal.Undo())
+            ShowPosition();
+    }
+    private void Redo() {
+        if (journal.Redo())
+            ShowPosition();
+    }
+    // Brings the controls in line with a board that has jumped to another position
+    private void ShowPosition() {
+        Board board = grid.getBoard();
+        if (board.isLost()) {
+            timeLine.stop();
+            board.ShowMines();
+            grid.setDisable(true);
+            generate.setImage(prevSmileImage = ImageManager.getDeadImage());
+        }
+        else if (board.isWon()) {
+            timeLine.stop();
+            grid.setDisable(true);
+            generate.setImage(prevSmileImage = ImageManager.getSwagImage());
+        }
+        else {
+            grid.setDisable(false);
+            generate.setImage(prevSmileImage = ImageManager.getSmileImage());
+        }
+    }
+    private void ShowReplay() {
+        // A single viewer, which follows the journal of the current game
+        if (replayViewer == null)
+            replayViewer = new ReplayViewer(this.getScene().getWindow(), journal, this::ShowPosition);
+        else
+            replayViewer.setJournal(journal);
+        replayViewer.show();
+        replayViewer.toFront();
+    }
+    private void SaveReplay() {
+        File file = ReplayChooser().showSaveDialog(this.getScene().getWindow());
+        if (file == null)
+            return;
+
+        try {
+            journal.Write(file.toPath());
+        }
+        catch (IOException e) {
+            ShowError("Cannot save the replay: " + e.getMessage());
+        }
+    }
+    private void LoadReplay() {
+        File file = ReplayChooser().showOpenDialog(this.getScene().getWindow());
+        if (file == null)
+            return;
+
+        try {
+            Journal loaded = Journal.Read(file.toPath());
+            SetGrid(loaded.NewBoard());
+            journal.Detach();
+            journal = loaded;
+            journal.Attach(grid.getBoard());
+            engine.setJournal(journal);
+            ShowReplay();
+        }
+        catch (IOException e) {
+            ShowError("Cannot load the replay: " + e.getMessage());
+        }
+    }
+    private FileChooser ReplayChooser() {
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Minesweeper replay", "*.msr"));
+        return chooser;
+    }
+    private FileChooser BoardChooser() {
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Minesweeper board", "*.msb"));
+        return chooser;
+    }
+    // Text snapshot of the metrics over the board, refreshed twice a second while shown
+    private void ShowMetrics(boolean show) {
+        if (metricsOverlay == null) {
+            metricsOverlay = new Label();
+            metricsOverlay.setManaged(false);
+            metricsOverlay.setMouseTransparent(true);
+            metricsOverlay.setFont(Font.font("Monospaced", 11));
+            metricsOverlay.setTextFill(Color.WHITE);
+            metricsOverlay.setBackground(new Background(new BackgroundFill(Color.color(0, 0, 0, 0.7), null, null)));
+            metricsOverlay.setPadding(new Insets(4));
+
+            metricsRefresh = new Timeline(new KeyFrame(Duration.millis(500), actionEvent -> RefreshMetrics()));
+            metricsRefresh.setCycleCount(Animation.INDEFINITE);
+        }
+
+        if (show) {
+            this.getChildren().add(metricsOverlay);
+            RefreshMetrics();
+            metricsRefresh.play();
+        }
+        else {
+            metricsRefresh.stop();
+            this.getChildren().remove(metricsOverlay);
+        }
+    }
+    private void RefreshMetrics() {
+        metricsOverlay.setText(metrics.ToText());
+        metricsOverlay.autosize();
+        metricsOverlay.relocate(4, menuBar.getHeight() + controls.getHeight() + 4);
+        metricsOverlay.toFront();
+    }
+    private void ExportMetrics() {
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON", "*.json"));
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text", "*.txt"));
+        File file = chooser.showSaveDialog(this.getScene().getWindow());
+        if (file == null)
+            return;
+
+        try {
+            boolean json = !file.getName().endsWith(".txt");
+            Files.writeString(file.toPath(), json ? metrics.ToJson() : metrics.ToText());
+        }
+        catch (IOException e) {
+            ShowError("Cannot export the metrics: " + e.getMessage());
+        }
+    }
+    private void ShowError(String message) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Errore");
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.show();
+    }
     // TODO: Resize menu
     public void ResizeMenu() {
         // menuBar.setPrefHeight(this.getHeight() * menuHeightPercent);
@@ -222,6 +661,9 @@ public class Game extends VBox {
     }
     public void ResizeControls() {
         double val = Math.min(this.getWidth(), this.getHeight()) * controlsHeightPercent;
+        if (val == controlsSize)
+            return;
+        controlsSize = val;
 
         for (var view : timeView) {
             view.setFitHeight(val);
@@ -241,13 +683,117 @@ public class Game extends VBox {
         controls.autosize();
     }
     private void SetGrid(int rows, int cols, int totMines) {
-        this.getChildren().remove(grid);
-        grid = new Grid(this, rows, cols, totMines);
-        this.getChildren().add(grid);
+        View pooled = views.get(new Size(rows, cols, totMines));
+        if (pooled == null) {
+            SetGrid(new Board(rows, cols, totMines));
+            if (noGuess)
+                Reset();
+            return;
+        }
+
+        if (pooled.grid() != grid)
+            ShowGrid(pooled);
+        Reset();
+    }
+    // Allocates the board off the FX thread, the view is built on it once the board is ready
+    public CompletableFuture<Void> SetGridAsync(int rows, int cols, int totMines) {
+        return CompletableFuture.supplyAsync(() -> {
+            // Decoding the images here too keeps it off the FX thread
+            ImageManager.getCellSprites();
+            return new Board(rows, cols, totMines);
+        }).thenAcceptAsync(board -> {
+            SetGrid(board);
+            if (noGuess)
+                Reset();
+        }, Platform::runLater);
+    }
+    private void SetGrid(Board board) {
+        try (Startup.Phase phase = Startup.Begin("Grid")) {
+            BuildGrid(board);
+        }
+    }
+    private void BuildGrid(Board board) {
+        board.setMetrics(metrics);
+
+        // Past a few thousand cells one node per cell is too slow, only the viewport gets drawn
+        BoardView view;
+        if ((long) board.getTotRows() * board.getTotCols() > HUGE_BOARD_CELLS)
+            view = new BoardCanvas(this, board);
+        else
+            view = new Grid(this, board);
+
+        Engine engine = new Engine(board, Platform::runLater);
+        engine.setResultListener(this::Finished);
+        view.setEngine(engine);
+
+        View built = new View(view, engine, new Probabilities(board));
+        View replaced = views.put(new Size(board.getTotRows(), board.getTotCols(), board.getTotMines()), built);
+        if (replaced != null)
+            replaced.engine().Shutdown();
+        ShowGrid(built);
+
+        // Listeners of the board and of the view, kept for as long as they stay in the pool
+        SetScore();
+        SetTime();
+        SetProbabilities();
+    }
+    private void ShowGrid(View view) {
+        if (grid != null)
+            this.getChildren().remove((Node) grid);
+        if (solver != null) {
+            solver.Detach();
+            solver = null;
+        }
+
+        grid          = view.grid();
+        engine        = view.engine();
+        probabilities = view.probabilities();
+        this.getChildren().add((Node) grid);
+
+        Board board = grid.getBoard();
+        UpdateDigitsView(scoreView, board.getTotMinesRemaining());
+        ResetTime();
+        StartJournal();
+        generate.setImage(prevSmileImage = ImageManager.getSmileImage());
+        grid.setDisable(false);
 
+        // A loaded board can already be finished
+        if (board.isGenerated()) {
+            if (board.isLost()) {
+                grid.setDisable(true);
+                generate.setImage(prevSmileImage = ImageManager.getDeadImage());
+            }
+            else if (board.isWon()) {
+                grid.setDisable(true);
+                generate.setImage(prevSmileImage = ImageManager.getSwagImage());
+            }
+        }
+
+        UpdateProbabilities();
         ResizeGrid();
+        Evict(view);
+    }
+    // The views not shown are kept within a budget of cells, the least recently shown go first
+    private void Evict(View view) {
+        long pooledCells = 0;
+        for (View pooled : views.values()) {
+            if (pooled != view)
+                pooledCells += pooled.grid().getBoard().getTotCells();
+        }
+        Iterator<View> eldest = views.values().iterator();
+        while (pooledCells > MAX_POOLED_CELLS && eldest.hasNext()) {
+            View pooled = eldest.next();
+            if (pooled == view)
+                continue;
+            pooledCells -= pooled.grid().getBoard().getTotCells();
+            pooled.engine().Shutdown();
+            eldest.remove();
+        }
     }
     public void ResizeGrid() {
+        if (grid == null)
+            return;
+
         double gridHeight = this.getHeight() - menuBar.getHeight() - controls.getHeight();
         grid.resize(this.getWidth(), gridHeight);
         grid.ResizeCells(this.getWidth(), gridHeight);
@@ -256,19 +802,18 @@ public class Game extends VBox {
         grid.setPadding(new Insets(0, pad, pad, pad));
     }
 
-    public void Lose(Cell cell) {
+    // End of a game, from the board or from the engine playing it
+    public void Finished(Board.Result result) {
+        switch (result) {
+            case LOSE -> Lose();
+            case WIN  -> Win();
+        }
+    }
+    public void Lose() {
         timeLine.stop();
+        int millis = RecordGame(false);
 
-        if (cell != null)
-            cell.setType(Cell.Type.EXPLODED);
-
-        for (var row : grid.getGrid()) {
-            for (var col : row) {
-                if (col.isMine()) {
-                    col.Show();
-                }
-            }
-        }
+        grid.getBoard().ShowMines();
         grid.setDisable(true);
 
         generate.setImage(prevSmileImage = ImageManager.getDeadImage());
@@ -276,11 +821,12 @@ public class Game extends VBox {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle("Sconfitta");
         alert.setHeaderText(null);
-        alert.setContentText("Hai perso!");
+        alert.setContentText("Hai perso!\n" + FormatTime(millis));
         alert.show();
     }
     public void Win() {
         timeLine.stop();
+        int millis = RecordGame(true);
 
         grid.setDisable(true);
 
@@ -289,7 +835,67 @@ public class Game extends VBox {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Vittoria");
         alert.setHeaderText(null);
-        alert.setContentText("Hai vinto!");
+        alert.setContentText("Hai vinto!\n" + FormatTime(millis));
         alert.show();
     }
+
+    // Sends the game to the statistics, the file is written in the background. Returns its time
+    private int RecordGame(boolean won) {
+        int millis = (startNanos != 0) ? (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - startNanos) / 1_000_000) : 0;
+        Board board = grid.getBoard();
+        if (recorded || !board.isGenerated())
+            return millis;
+
+        recorded = true;
+        statistics.Record(board, engine.Snapshot(), millis, clicks, won, noGuessGame).whenCompleteAsync((entry, error) -> {
+            // Reported once, the game goes on without statistics
+            if (error != null && !statisticsFailed) {
+                statisticsFailed = true;
+                ShowError("Cannot save the statistics: " + error.getMessage());
+            }
+        }, Platform::runLater);
+        return millis;
+    }
+    private static String FormatTime(int millis) {
+        return String.format("Tempo: %d.%03d s", millis / 1000, millis % 1000);
+    }
+
+    private void ShowStatistics() {
+        Board board = grid.getBoard();
+        StringBuilder text = new StringBuilder();
+        for (Difficulty difficulty : Difficulty.values())
+            AppendSummary(text, difficulty.toString(), statistics.getSummary(difficulty));
+        if (Difficulty.Of(board.getTotRows(), board.getTotCols(), board.getTotMines()) == null) {
+            String name = board.getTotCols() + "x" + board.getTotRows() + ", " + board.getTotMines() + " mines";
+            AppendSummary(text, name, statistics.getSummary(board.getTotRows(), board.getTotCols(), board.getTotMines()));
+        }
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Statistiche");
+        alert.setHeaderText(null);
+        alert.setContentText(text.toString().trim());
+        alert.show();
+    }
+    private static void AppendSummary(StringBuilder text, String name, Statistics.Summary summary) {
+        text.append(name).append('\n');
+        if (summary.games() == 0) {
+            text.append("  Nessuna partita\n\n");
+            return;
+        }
+
+        text.append(String.format("  Partite: %d, vinte: %d (%d%%)%n", summary.games(), summary.wins(), summary.wins() * 100 / summary.games()));
+        text.append(String.format("  Serie attuale: %d, migliore: %d%n", summary.streak(), summary.bestStreak()));
+        int position = 1;
+        for (Statistics.Entry entry : summary.best()) {
+            if (position > 3)
+                break;
+            text.append(String.format("  %d. %s, 3BV %d, efficienza %.2f%n", position++, FormatTime(entry.millis()), entry.bbbv(), entry.getEfficiency()));
+        }
+        text.append('\n');
+    }
+
+    // Flushes what is still pending, on exit
+    public void Close() {
+        statistics.Close();
+    }
 }
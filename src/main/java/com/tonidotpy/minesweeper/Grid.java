@@ -1,229 +1,256 @@
 package com.tonidotpy.minesweeper;
 
-import javafx.event.Event;
-import javafx.event.EventHandler;
+import javafx.animation.PauseTransition;
+import javafx.geometry.Bounds;
 import javafx.geometry.Pos;
-import javafx.scene.control.Alert;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.BlurType;
+import javafx.scene.effect.InnerShadow;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
-import javafx.util.Pair;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Stack;
+public class Grid extends GridPane implements BoardView {
+    // Time without size changes after which the cells are redrawn at their new size
+    private static final Duration SETTLE_TIME = Duration.millis(150);
 
-public class Grid extends GridPane {
-    private final int totRows, totCols;
+    private final Board board;
     private final Cell[][] grid;
-
-    private int totCellShown;
-    private final int totMines;
+    private final DirtyCells dirtyCells;
+    private final BoardInput input;
+    private Engine engine;
+    private Cell highlighted;
+    private int pressedRow, pressedCol;
+    // Cell images at the current cell size in pixels
+    private CellSprites sprites;
+    // While the size changes the grid is scaled as a single node, the cells are only redrawn at
+    // the target size once it settles
+    private final PauseTransition settle;
+    private int targetSize;
+    // Heat map drawn over the cells, outside of the grid layout
+    private final Canvas overlay;
+    private Probabilities.Result probabilities;
 
     private final Game game;
 
 
+    public Board getBoard()  { return board; }
+    public BoardInput getInput() { return input; }
+    public void setEngine(Engine engine) { this.engine = engine; }
     public Cell[][] getGrid() { return grid; }
-    public int getTotRows()  { return totRows; }
-    public int getTotCols()  { return totCols; }
-    public int getTotMines() { return totMines; }
-    public int getTotCellShown() { return totCellShown; }
+    public int getTotRows()  { return board.getTotRows(); }
+    public int getTotCols()  { return board.getTotCols(); }
+    public int getTotMines() { return board.getTotMines(); }
+    public int getTotCellShown() { return board.getTotCellShown(); }
 
-    public boolean IsInBounds(int r, int c) { return (r >= 0 && r < totRows) && (c >= 0 && c < totCols); }
+    public boolean IsInBounds(int r, int c) { return board.IsInBounds(r, c); }
 
 
 
     public Grid(Game game, int totRows, int totCols, int totMines) {
+        this(game, new Board(totRows, totCols, totMines));
+    }
+    public Grid(Game game, Board board) {
         super();
 
         this.game = game;
 
         this.setAlignment(Pos.CENTER);
 
-        this.totRows      = totRows;
-        this.totCols      = totCols;
-        // The first 9 cells at the beginning of the game cannot be mines
-        this.totMines     = Math.max(1, Math.min(totMines, totRows * totCols - 9));
-        this.totCellShown = 0;
+        this.board = board;
+        int totRows = board.getTotRows(), totCols = board.getTotCols();
 
+        sprites = ImageManager.getCellSprites();
         grid = new Cell[totRows][totCols];
         for (int r = 0; r < totRows; r++) {
             for (int c = 0; c < totCols; c++) {
                 Cell cell = new Cell();
-                final int row = r ,col = c;
-
-                cell.setOnMousePressed(mouseEvent -> { if (cell.CanBeShown()) cell.setImage(ImageManager.getEmptyPressedImage()); });
-                cell.setOnMouseReleased(mouseEvent -> { if (cell.CanBeShown()) cell.setImage(ImageManager.getEmptyImage()); } );
-                cell.setOnMouseClicked(mouseEvent -> Click(mouseEvent, row, col));
+                cell.Update(sprites, board, r, c);
 
                 grid[r][c] = cell;
                 this.add(cell, c, r);
             }
         }
+        overlay = new Canvas();
+        overlay.setManaged(false);
+        overlay.setMouseTransparent(true);
+        this.getChildren().add(overlay);
+
+        dirtyCells = new DirtyCells(totRows * totCols, this::RenderCell);
+        dirtyCells.setMetrics(board.getMetrics());
+        settle = new PauseTransition(SETTLE_TIME);
+        settle.setOnFinished(actionEvent -> Rasterize(targetSize));
+        board.AddListener(new Board.Listener() {
+            @Override
+            public void CellChanged(int row, int col) { Grid.this.CellChanged(row, col); }
+            // Undo, replays and the engine replace the whole board at once
+            @Override
+            public void BoardReset() { dirtyCells.MarkAll(); }
+        });
+
+        // A single set of mouse handlers for the whole grid, the cells themselves have none
+        pressedRow = pressedCol = -1;
+        input = new BoardInput();
+        input.AddListener(this::Apply);
+        this.setOnMousePressed(mouseEvent -> Send(mouseEvent, BoardInput.Action.PRESS));
+        this.setOnMouseReleased(mouseEvent -> Send(mouseEvent, BoardInput.Action.RELEASE));
+        this.setOnMouseClicked(mouseEvent -> {
+            switch (mouseEvent.getButton()) {
+                case PRIMARY   -> Send(mouseEvent, BoardInput.Action.PRIMARY);
+                case SECONDARY -> Send(mouseEvent, BoardInput.Action.SECONDARY);
+            }
+        });
     }
 
 
 
-    private void Click(MouseEvent mouseEvent, int row, int col) {
-        Cell cell = grid[row][col];
-        switch (mouseEvent.getButton()) {
-            case PRIMARY -> {
-                if (cell.CanBeShown()) {
-                    if (totCellShown == 0) {
-                        Generate(row, col);
-                    }
-
-                    if (cell.isMine()) {
-                        game.Lose(cell);
-                        break;
-                    }
-                    else {
-                        Propagate(row, col);
-                    }
-                }
-                else if (cell.isShown() && cell.getTotNearMines() > 0) {
-                    if (cell.getTotNearMines() > 0) {
-                        if (!ShowObviousCells(row, col))
-                            return;
-                    }
+    private void Send(MouseEvent mouseEvent, BoardInput.Action action) {
+        int row = RowAt(mouseEvent.getY()), col = ColAt(mouseEvent.getX());
+        if (board.IsInBounds(row, col))
+            input.Send(action, row, col);
+        else if (action == BoardInput.Action.RELEASE)
+            Apply(action, row, col);
+    }
+    // The cells are all the same size, so the pointer position gives the cell directly
+    private int RowAt(double y) {
+        Bounds first = grid[0][0].getBoundsInParent(), last = grid[board.getTotRows() - 1][0].getBoundsInParent();
+        return (int) Math.floor((y - first.getMinY()) * board.getTotRows() / (last.getMaxY() - first.getMinY()));
+    }
+    private int ColAt(double x) {
+        Bounds first = grid[0][0].getBoundsInParent(), last = grid[0][board.getTotCols() - 1].getBoundsInParent();
+        return (int) Math.floor((x - first.getMinX()) * board.getTotCols() / (last.getMaxX() - first.getMinX()));
+    }
+
+    private void Apply(BoardInput.Action action, int row, int col) {
+        switch (action) {
+            case PRESS -> {
+                if (board.CanBeShown(row, col)) {
+                    pressedRow = row;
+                    pressedCol = col;
+                    grid[row][col].setImage(sprites.getEmptyPressedImage());
                 }
-                if (totCellShown >= totRows * totCols - totMines) {
-                    game.Win();
+            }
+            case RELEASE -> {
+                if (pressedRow >= 0) {
+                    grid[pressedRow][pressedCol].Update(sprites, board, pressedRow, pressedCol);
+                    pressedRow = pressedCol = -1;
                 }
             }
+            case PRIMARY -> {
+                ClearHighlight();
+                if (engine != null)
+                    engine.Click(row, col);
+                else
+                    game.Finished(board.Click(row, col));
+            }
             case SECONDARY -> {
-                if (!cell.isShown())
-                    cell.ToggleState();
+                ClearHighlight();
+                if (engine != null)
+                    engine.ToggleState(row, col);
+                else
+                    board.ToggleState(row, col);
             }
         }
     }
 
-    public void Generate(int row, int col) {
-        this.setDisable(false);
-
-        PlaceMines(row, col);
-        CalculateNearMines();
+    // Board changes are only recorded here, the cells are redrawn together on the next pulse
+    private void CellChanged(int row, int col) {
+        dirtyCells.Mark(board.Index(row, col));
     }
-    private void PlaceMines(int row, int col) {
-        ArrayList<Pair<Integer, Integer>> nums = new ArrayList<>();
-        for (int r = 0; r < totRows; r++) {
-            for (int c = 0; c < totCols; c++) {
-                if (r < row - 1 || r > row + 1 || c < col - 1 || c > col + 1) {
-                    nums.add(new Pair<>(r, c));
-                }
-            }
-        }
-        Collections.shuffle(nums);
-
-        for (int i = 0; i < totMines; i++) {
-            var index = nums.get(i);
-            grid[index.getKey()][index.getValue()].setType(Cell.Type.MINE);
-        }
+    public void Highlight(int row, int col, boolean safe) {
+        ClearHighlight();
+        highlighted = grid[row][col];
+        highlighted.setEffect(new InnerShadow(BlurType.GAUSSIAN, safe ? Color.LIMEGREEN : Color.ORANGE, 8.0, 0.6, 0.0, 0.0));
     }
-    private void CalculateNearMines() {
-        for (int r = 0; r < totRows; r++) {
-            for (int c = 0; c < totCols; c++) {
-                Cell cell = grid[r][c];
-                if (!cell.isMine()) {
-                    int mines = CountAdjacentMines(r, c);
-                    cell.setType(mines);
-                }
-            }
+    private void ClearHighlight() {
+        if (highlighted != null) {
+            highlighted.setEffect(null);
+            highlighted = null;
         }
     }
 
-    private boolean ShowObviousCells(int row, int col) {
-        Cell cell = grid[row][col];
-        int flags = 0;
-        for (int r = row - 1; r <= row + 1; r++) {
-            for (int c = col - 1; c <= col + 1; c++) {
-                if (IsInBounds(r, c) && grid[r][c].isFlag()) {
-                    flags++;
-                }
+    public void ShowProbabilities(Probabilities.Result probabilities) {
+        this.probabilities = probabilities;
+        DrawProbabilities();
+    }
+    private void DrawProbabilities() {
+        GraphicsContext gc = overlay.getGraphicsContext2D();
+        gc.clearRect(0, 0, overlay.getWidth(), overlay.getHeight());
+        if (probabilities == null)
+            return;
+
+        double size = overlay.getWidth() / board.getTotCols();
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                if (board.isShown(r, c))
+                    continue;
+                gc.setFill(BoardCanvas.HeatColor(probabilities.getProbability(board.Index(r, c))));
+                gc.fillRect(c * size, r * size, size, size);
             }
         }
+    }
 
-        if (flags >= cell.getTotNearMines()) {
-            Cell cur;
-            for (int r = row - 1; r <= row + 1; r++) {
-                for (int c = col - 1; c <= col + 1; c++) {
-                    if (IsInBounds(r, c) && (cur = grid[r][c]).CanBeShown()) {
-                        cur.Show();
-                        totCellShown++;
-
-
-                        if (cur.getType() == Cell.Type.ZERO) {
-                            Propagate(r, c);
-                        }
-
-                        if (cur.isMine()) {
-                            game.Lose(cur);
-                            return false;
-                        }
-                    }
-                }
-            }
-        }
-        return true;
-    }
-    private int CountAdjacentMines(int row, int col) {
-        int mines = 0;
-        for (int r = row-1; r <= row+1; r++) {
-            for (int c = col-1; c <= col+1; c++) {
-                if (IsInBounds(r, c) && grid[r][c].isMine()) {
-                    mines++;
-                }
-            }
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+
+        Bounds first = grid[0][0].getBoundsInParent();
+        double width = first.getWidth() * board.getTotCols(), height = first.getHeight() * board.getTotRows();
+        overlay.relocate(first.getMinX(), first.getMinY());
+        if (overlay.getWidth() != width || overlay.getHeight() != height) {
+            overlay.setWidth(width);
+            overlay.setHeight(height);
+            DrawProbabilities();
         }
-        return mines;
     }
 
-    private void Propagate(int row, int col) {
-        Stack<Pair<Integer, Integer>> trace = new Stack<>();
-        trace.push(new Pair<>(row, col));
-        while (!trace.empty()) {
-            var index = trace.peek();
-            trace.pop();
-
-            int r = index.getKey(), c = index.getValue();
-            Cell cell = grid[r][c];
-            if (cell.CanBeShown()) {
-                cell.Show();
-                totCellShown++;
-            }
-
-            if (cell.getType() == Cell.Type.ZERO) {
-                for (int i = r - 1; i <= r + 1; i++) {
-                    for (int j = c - 1; j <= c + 1; j++) {
-                        if (IsInBounds(i, j) && !grid[i][j].isShown()) {
-                            trace.push(new Pair<>(i, j));
-                        }
-                    }
-                }
-            }
-        }
+    private void RenderCell(int index) {
+        int row = index / board.getTotCols(), col = index % board.getTotCols();
+        grid[row][col].Update(sprites, board, row, col);
     }
 
     public void ResizeCells(double width, double height) {
         double s = Math.min(width, height);
-        double w = s / (double) totCols;
-        double h = s / (double) totRows;
-
-        for (var row : grid) {
-            for (var col : row) {
-                col.setFitWidth(w);
-                col.setFitHeight(h);
-                col.setPreserveRatio(true);
+        // Whole pixels, so that every cell shows a sprite of its exact size without any scaling
+        int size = (int) Math.max(1.0, Math.floor(s / Math.max(board.getTotRows(), board.getTotCols())));
+        double current = grid[0][0].getFitWidth();
+        if (current == 0.0) {
+            // Never laid out, there is nothing to scale yet
+            Rasterize(size);
+            return;
+        }
+
+        targetSize = size;
+        this.setScaleX(size / current);
+        this.setScaleY(size / current);
+        if (size == current)
+            settle.stop();
+        else
+            settle.playFromStart();
+    }
+    private void Rasterize(int size) {
+        this.setScaleX(1.0);
+        this.setScaleY(1.0);
+        if (size == grid[0][0].getFitWidth())
+            return;
+
+        sprites = ImageManager.getCellSprites(size);
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                grid[r][c].setFitWidth(size);
+                grid[r][c].setFitHeight(size);
+                grid[r][c].Update(sprites, board, r, c);
             }
         }
     }
 
-    public void Reset() {
-        totCellShown = 0;
+    public void Reset(long seed) {
+        ClearHighlight();
+        board.Reset(seed);
         this.setDisable(false);
-        for (var row : grid) {
-            for (var col : row) {
-                col.Reset();
-            }
-        }
+        ShowProbabilities(null);
+        // The board reset has marked every cell, they are redrawn together on the next pulse
     }
 }
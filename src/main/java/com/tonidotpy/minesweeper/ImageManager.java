@@ -1,64 +1,129 @@
 package com.tonidotpy.minesweeper;
 
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// All the images come from a single atlas on the classpath, decoded the first time one is needed.
+// Atlas layout: 15 cells of 16x16 at y 0, 4 faces of 24x24 at y 16, 12 digits of 13x23 at y 40
 public final class ImageManager {
-    private static final Image[] numImages;
-    private static final Image[] digitImages;
-    private static final Image emptyImage;
-    private static final Image emptyPressedImage;
-    private static final Image mineImage;
-    private static final Image explodedImage;
-    private static final Image flagImage;
-    private static final Image questionMarkImage;
-
-    private static final Image smileImage;
-    private static final Image smilePressedImage;
-    private static final Image deadImage;
-    private static final Image swagImage;
-
-
-    public static Image getNumImage(int num) { return (num >= 0 && num < numImages.length) ? numImages[num] : null; }
-    public static Image getDigitImage(int num) { return (num >= 0 && num < digitImages.length - 1) ? digitImages[num] : null; }
-    public static Image getDigitOffImage() { return digitImages[digitImages.length - 2]; }
-    public static Image getDigitMinusImage() { return digitImages[digitImages.length - 1]; }
-    public static Image getEmptyImage() { return emptyImage; }
-    public static Image getEmptyPressedImage() { return emptyPressedImage; }
-    public static Image getMineImage()  { return mineImage;  }
-    public static Image getExplodedImage()  { return explodedImage;  }
-    public static Image getFlagImage()  { return flagImage;  }
-    public static Image getQuestionMarkImage()  { return questionMarkImage;  }
-
-    public static Image getSmileImage() { return smileImage; }
-    public static Image getSmilePressedImage() { return smilePressedImage; }
-    public static Image getDeadImage()  { return deadImage; }
-    public static Image getSwagImage()  { return swagImage; }
-
-
-    static {
-        String imagePath = "file:src/main/resources/com/tonidotpy/minesweeper/images/";
-
-        double cellSize = 16.0, controlsSize = 24.0;
-        emptyImage        = new Image(imagePath + "empty.png",        cellSize, cellSize, true, false);
-        emptyPressedImage = new Image(imagePath + "empty_pressed.png",cellSize, cellSize, true, false);
-        mineImage         = new Image(imagePath + "mine.png",         cellSize, cellSize, true, false);
-        explodedImage     = new Image(imagePath + "exploded.png",     cellSize, cellSize, true, false);
-        flagImage         = new Image(imagePath + "flag.png",         cellSize, cellSize, true, false);
-        questionMarkImage = new Image(imagePath + "questionmark.png", cellSize, cellSize, true, false);
-
-        smileImage        = new Image(imagePath + "smile.png",         controlsSize, controlsSize, true, false);
-        smilePressedImage = new Image(imagePath + "smile_pressed.png", controlsSize, controlsSize, true, false);
-        deadImage         = new Image(imagePath + "dead.png",          controlsSize, controlsSize, true, false);
-        swagImage         = new Image(imagePath + "swag.png",          controlsSize, controlsSize, true, false);
-
-        numImages  = new Image[9];
-        digitImages  = new Image[12];
-        for (int i = 0; i < 9; i++) {
-            numImages[i] = new Image(imagePath + i + ".png", cellSize, cellSize, true, false);
-            digitImages[i] = new Image(imagePath + "digit-" + i + ".png", 13.0, 23.0, true, false);
+    private static final int CELL_SIZE  = 16;
+    private static final int FACE_SIZE  = 24;
+    private static final int FACE_Y     = 16;
+    private static final int DIGIT_W    = 13;
+    private static final int DIGIT_H    = 23;
+    private static final int DIGIT_Y    = 40;
+    // Cell sizes kept at once: a resize usually goes back and forth between a few of them
+    private static final int MAX_VARIANTS = 4;
+
+    private static final Map<Integer, CellSprites> variants = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CellSprites> eldest) {
+            return size() > MAX_VARIANTS;
+        }
+    };
+
+
+    public static Image getNumImage(int num) { return Atlas.cells.getNumImage(num); }
+    public static Image getDigitImage(int num) { return (num >= 0 && num < Atlas.digits.length - 2) ? Atlas.digits[num] : null; }
+    public static Image getDigitOffImage() { return Atlas.digits[Atlas.digits.length - 2]; }
+    public static Image getDigitMinusImage() { return Atlas.digits[Atlas.digits.length - 1]; }
+    public static Image getEmptyImage() { return Atlas.cells.getEmptyImage(); }
+    public static Image getEmptyPressedImage() { return Atlas.cells.getEmptyPressedImage(); }
+    public static Image getMineImage()  { return Atlas.cells.getMineImage();  }
+    public static Image getExplodedImage()  { return Atlas.cells.getExplodedImage();  }
+    public static Image getFlagImage()  { return Atlas.cells.getFlagImage();  }
+    public static Image getQuestionMarkImage()  { return Atlas.cells.getQuestionMarkImage();  }
+
+    public static Image getSmileImage() { return Atlas.faces[0]; }
+    public static Image getSmilePressedImage() { return Atlas.faces[1]; }
+    public static Image getDeadImage()  { return Atlas.faces[2]; }
+    public static Image getSwagImage()  { return Atlas.faces[3]; }
+
+    public static CellSprites getCellSprites() { return Atlas.cells; }
+    // Cell images scaled to the given size with nearest neighbour, so they stay sharp at any size.
+    // Only the last few sizes asked for are kept
+    public static synchronized CellSprites getCellSprites(int size) {
+        if (size <= 0 || size == CELL_SIZE)
+            return Atlas.cells;
+        return variants.computeIfAbsent(size, ImageManager::Scale);
+    }
+
+
+    private ImageManager() {}
+
+    private static CellSprites Scale(int size) {
+        PixelReader reader = Atlas.image.getPixelReader();
+        WritablePixelFormat<IntBuffer> format = PixelFormat.getIntArgbInstance();
+        int[] source = new int[CELL_SIZE * CELL_SIZE];
+        int[] target = new int[size * size];
+
+        Image[] images = new Image[CellSprites.COUNT];
+        for (int i = 0; i < images.length; i++) {
+            reader.getPixels(i * CELL_SIZE, 0, CELL_SIZE, CELL_SIZE, format, source, 0, CELL_SIZE);
+            for (int y = 0; y < size; y++) {
+                int row = (y * CELL_SIZE / size) * CELL_SIZE;
+                for (int x = 0; x < size; x++) {
+                    target[y * size + x] = source[row + x * CELL_SIZE / size];
+                }
+            }
+
+            WritableImage image = new WritableImage(size, size);
+            image.getPixelWriter().setPixels(0, 0, size, size, format, target, 0, size);
+            images[i] = image;
+        }
+        return new CellSprites(size, images);
+    }
+
+    // Loaded by the JVM on first access, so only a game that shows images pays for decoding them
+    private static final class Atlas {
+        private static final Image image;
+        private static final CellSprites cells;
+        private static final Image[] faces;
+        private static final Image[] digits;
+
+        static {
+            try (Startup.Phase phase = Startup.Begin("Images")) {
+                image = Load("images/atlas.png");
+                PixelReader reader = image.getPixelReader();
+
+                Image[] images = new Image[CellSprites.COUNT];
+                for (int i = 0; i < images.length; i++) {
+                    images[i] = new WritableImage(reader, i * CELL_SIZE, 0, CELL_SIZE, CELL_SIZE);
+                }
+                cells = new CellSprites(CELL_SIZE, images);
+
+                faces = new Image[4];
+                for (int i = 0; i < faces.length; i++) {
+                    faces[i] = new WritableImage(reader, i * FACE_SIZE, FACE_Y, FACE_SIZE, FACE_SIZE);
+                }
+
+                // Digits 0-9, then off and minus
+                digits = new Image[12];
+                for (int i = 0; i < digits.length; i++) {
+                    digits[i] = new WritableImage(reader, i * DIGIT_W, DIGIT_Y, DIGIT_W, DIGIT_H);
+                }
+            }
+        }
+
+        private static Image Load(String name) {
+            try (InputStream stream = ImageManager.class.getResourceAsStream(name)) {
+                if (stream == null)
+                    throw new IllegalStateException("Missing resource " + name);
+                return new Image(stream);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
-        digitImages[9]  = new Image(imagePath + "digit-9.png", 13.0, 23.0, true, false);
-        digitImages[10] = new Image(imagePath + "digit-off.png", 13.0, 23.0, true, false);
-        digitImages[11] = new Image(imagePath + "digit-minus.png", 13.0, 23.0, true, false);
     }
 }
@@ -0,0 +1,433 @@
+package com.tonidotpy.minesweeper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Board without borders, split in chunks of 64x64 cells with the same cell layout as Board.
+// The mines of a chunk only depend on the seed, the chunk coordinates and the first click, so a chunk
+// can be dropped and generated again at any time. Chunks live in an LRU cache: the ones the player has
+// never changed are simply dropped, the others have their states spilled to a memory mapped file
+// (2 bits per cell) and read back when needed. The heap holds at most 'capacity' chunks however far
+// the player goes, plus a few bytes of index per spilled chunk
+public class InfiniteBoard implements AutoCloseable {
+    public interface Listener {
+        void CellChanged(int row, int col);
+        // Cached chunks have been dropped or the game has restarted, everything must be redrawn
+        default void BoardReset() {}
+    }
+
+    static final int CHUNK_BITS  = 6;
+    static final int CHUNK_SIZE  = 1 << CHUNK_BITS;
+    static final int CHUNK_MASK  = CHUNK_SIZE - 1;
+    static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    // Spilled chunks: 4 states per byte, in slots grouped in separately mapped segments
+    private static final int SLOT_SIZE = CHUNK_CELLS / 4;
+    private static final int SLOTS_PER_SEGMENT = 1 << 14;
+    // Below about 10% mines the zero cells percolate and a flood fill never ends on an endless plane,
+    // at 12% the largest openings are a few thousand cells
+    static final double MIN_DENSITY = 0.12;
+    static final double MAX_DENSITY = 0.5;
+
+    private static final int SHOWN = Board.State.SHOWN.ordinal();
+    private static final int EMPTY = Board.State.EMPTY.ordinal();
+    private static final int FLAG  = Board.State.FLAG.ordinal();
+    private static final Board.State[] STATES = Board.State.values();
+
+    private static class Chunk {
+        final long key;
+        final byte[] cells = new byte[CHUNK_CELLS];
+        // Changed by the player since it was generated or loaded
+        boolean modified;
+
+        Chunk(long key) { this.key = key; }
+    }
+
+
+    private long seed;
+    private final int minesPerChunk;
+    private final int capacity;
+    private final LinkedHashMap<Long, Chunk> chunks;
+
+    private final HashMap<Long, Integer> spilled;
+    private final ArrayList<MappedByteBuffer> segments;
+    private Path spillPath;
+    private FileChannel spillChannel;
+
+    private boolean started;
+    private int firstRow, firstCol;
+    private boolean lost;
+    private int explodedRow, explodedCol;
+    private long totCellShown, totFlags;
+
+    private Listener[] listeners = new Listener[0];
+    // Flood fill stack of packed coordinates, kept between calls
+    private long[] trace = new long[256];
+    // Most recently used chunk, most lookups hit it
+    private Chunk last;
+
+
+    public long getSeed() { return seed; }
+    public boolean isStarted() { return started; }
+    public boolean isLost() { return lost; }
+    public long getTotCellShown() { return totCellShown; }
+    public long getTotFlags() { return totFlags; }
+    public int getTotCachedChunks() { return chunks.size(); }
+    public int getTotSpilledChunks() { return spilled.size(); }
+    public double getDensity() { return (double) minesPerChunk / CHUNK_CELLS; }
+
+    public Board.State getState(int r, int c) { return STATES[(CellOf(r, c) & Board.STATE_MASK) >>> Board.STATE_SHIFT]; }
+    public boolean isMine(int r, int c) { return (CellOf(r, c) & Board.MINE_BIT) != 0; }
+    public boolean isExploded(int r, int c) { return (CellOf(r, c) & Board.EXPLODED_BIT) != 0; }
+    public int getTotNearMines(int r, int c) { return CellOf(r, c) & Board.NEAR_MINES_MASK; }
+    public boolean CanBeShown(int r, int c) { return StateOf(CellOf(r, c)) == EMPTY; }
+
+    public void AddListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+
+    public InfiniteBoard(long seed, double density, int capacity) {
+        this.minesPerChunk = (int) Math.round(Math.max(MIN_DENSITY, Math.min(MAX_DENSITY, density)) * CHUNK_CELLS);
+        this.capacity      = Math.max(16, capacity);
+        this.spilled       = new HashMap<>();
+        this.segments      = new ArrayList<>();
+        this.chunks        = new LinkedHashMap<>(this.capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() <= InfiniteBoard.this.capacity)
+                    return false;
+                Evict(eldest.getValue());
+                return true;
+            }
+        };
+        Reset(seed);
+    }
+
+
+
+    // Primary click, the same rules as Board except that there is no win
+    public Board.Result Click(int row, int col) {
+        if (CanBeShown(row, col)) {
+            if (!started)
+                Start(row, col);
+
+            if (isMine(row, col)) {
+                Explode(row, col);
+                return Board.Result.LOSE;
+            }
+            Propagate(row, col);
+        }
+        else if (getState(row, col) == Board.State.SHOWN && getTotNearMines(row, col) > 0) {
+            if (!ShowObviousCells(row, col))
+                return Board.Result.LOSE;
+        }
+        return Board.Result.NONE;
+    }
+
+    public void ToggleState(int row, int col) {
+        int state = StateOf(CellOf(row, col));
+        if (state != SHOWN)
+            SetState(row, col, (state + 1) % 3);
+    }
+
+    public boolean ShowObviousCells(int row, int col) {
+        int flags = 0;
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if (StateOf(CellOf(r, c)) == FLAG)
+                    flags++;
+            }
+        }
+        if (flags < getTotNearMines(row, col))
+            return true;
+
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if (CanBeShown(r, c)) {
+                    if (isMine(r, c)) {
+                        Explode(r, c);
+                        return false;
+                    }
+                    Propagate(r, c);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Flood fill as in Board, crossing chunks as needed: cells are marked shown when pushed
+    public long Propagate(int row, int col) {
+        long revealed = 0;
+        if (CanBeShown(row, col)) {
+            SetState(row, col, SHOWN);
+            revealed++;
+        }
+
+        int top = 0;
+        trace[top++] = Pack(row, col);
+        while (top > 0) {
+            long cell = trace[--top];
+            int r = (int) (cell >> 32), c = (int) cell;
+            if (getTotNearMines(r, c) != 0)
+                continue;
+
+            for (int i = r - 1; i <= r + 1; i++) {
+                for (int j = c - 1; j <= c + 1; j++) {
+                    int near = CellOf(i, j);
+                    if (StateOf(near) != EMPTY)
+                        continue;
+
+                    SetState(i, j, SHOWN);
+                    revealed++;
+                    if ((near & Board.NEAR_MINES_MASK) == 0) {
+                        if (top == trace.length)
+                            trace = Arrays.copyOf(trace, trace.length * 2);
+                        trace[top++] = Pack(i, j);
+                    }
+                }
+            }
+        }
+        return revealed;
+    }
+
+    // New game: every chunk and the spill file are dropped
+    public void Reset(long seed) {
+        chunks.clear();
+        spilled.clear();
+        CloseSpill();
+        last = null;
+
+        this.seed = seed;
+        started  = false;
+        lost     = false;
+        firstRow = firstCol = 0;
+        explodedRow = explodedCol = 0;
+        totCellShown = totFlags = 0;
+
+        for (Listener listener : listeners)
+            listener.BoardReset();
+    }
+
+    @Override
+    public void close() {
+        chunks.clear();
+        spilled.clear();
+        CloseSpill();
+    }
+
+
+    // The first click fixes where the safe area is. The chunks whose mines or counts change with it
+    // are generated again, keeping the flags and question marks already placed on them. Spilled
+    // states are kept apart from the mines, so they are still valid
+    private void Start(int row, int col) {
+        started  = true;
+        firstRow = row;
+        firstCol = col;
+
+        for (Chunk chunk : chunks.values()) {
+            int chunkRow = (int) (chunk.key >> 32), chunkCol = (int) chunk.key;
+            if (chunkRow < (row - 2) >> CHUNK_BITS || chunkRow > (row + 2) >> CHUNK_BITS ||
+                chunkCol < (col - 2) >> CHUNK_BITS || chunkCol > (col + 2) >> CHUNK_BITS)
+                continue;
+
+            Chunk fresh = Generate(chunk.key);
+            for (int i = 0; i < CHUNK_CELLS; i++)
+                chunk.cells[i] = (byte) ((fresh.cells[i] & ~Board.STATE_MASK) | (chunk.cells[i] & Board.STATE_MASK));
+        }
+    }
+    private void Explode(int row, int col) {
+        lost = true;
+        explodedRow = row;
+        explodedCol = col;
+        Chunk chunk = ChunkOf(row, col);
+        chunk.cells[Local(row, col)] |= Board.EXPLODED_BIT;
+        SetState(row, col, SHOWN);
+    }
+
+    private void SetState(int row, int col, int state) {
+        Chunk chunk = ChunkOf(row, col);
+        int index = Local(row, col);
+        int old = StateOf(chunk.cells[index]);
+        boolean mine = (chunk.cells[index] & Board.MINE_BIT) != 0;
+        if (old == FLAG) totFlags--;
+        if (state == FLAG) totFlags++;
+        if (state == SHOWN && old != SHOWN && !mine) totCellShown++;
+
+        chunk.cells[index] = (byte) ((chunk.cells[index] & ~Board.STATE_MASK) | (state << Board.STATE_SHIFT));
+        chunk.modified = true;
+        for (Listener listener : listeners)
+            listener.CellChanged(row, col);
+    }
+
+    private int CellOf(int r, int c) { return ChunkOf(r, c).cells[Local(r, c)]; }
+    private static int StateOf(int cell) { return (cell & Board.STATE_MASK) >>> Board.STATE_SHIFT; }
+    private static int Local(int r, int c) { return (r & CHUNK_MASK) << CHUNK_BITS | (c & CHUNK_MASK); }
+    private static long Pack(int r, int c) { return (long) r << 32 | (c & 0xFFFFFFFFL); }
+
+    private Chunk ChunkOf(int r, int c) {
+        long key = Pack(r >> CHUNK_BITS, c >> CHUNK_BITS);
+        if (last != null && last.key == key)
+            return last;
+
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = Generate(key);
+            chunks.put(key, chunk);
+        }
+        return last = chunk;
+    }
+
+
+    // Mines and near mine counts of a chunk, then the states saved when it was last evicted
+    private Chunk Generate(long key) {
+        int chunkRow = (int) (key >> 32), chunkCol = (int) key;
+        Chunk chunk = new Chunk(key);
+
+        // Mine bits of the chunk and of a one cell border around it, taken from the neighbour layouts
+        final int side = CHUNK_SIZE + 2;
+        boolean[] mines = new boolean[side * side];
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                long[] layer = MineLayer(chunkRow + dr, chunkCol + dc);
+                int rFrom = (dr < 0) ? CHUNK_SIZE - 1 : 0, rTo = (dr > 0) ? 1 : CHUNK_SIZE;
+                int cFrom = (dc < 0) ? CHUNK_SIZE - 1 : 0, cTo = (dc > 0) ? 1 : CHUNK_SIZE;
+                for (int r = rFrom; r < rTo; r++) {
+                    for (int c = cFrom; c < cTo; c++) {
+                        if ((layer[r] >>> c & 1) != 0)
+                            mines[(r + dr * CHUNK_SIZE + 1) * side + (c + dc * CHUNK_SIZE + 1)] = true;
+                    }
+                }
+            }
+        }
+
+        for (int r = 0; r < CHUNK_SIZE; r++) {
+            for (int c = 0; c < CHUNK_SIZE; c++) {
+                int p = (r + 1) * side + (c + 1);
+                if (mines[p]) {
+                    chunk.cells[r << CHUNK_BITS | c] = Board.MINE_BIT;
+                    continue;
+                }
+                int near = 0;
+                for (int i = -side; i <= side; i += side) {
+                    if (mines[p + i - 1]) near++;
+                    if (mines[p + i])     near++;
+                    if (mines[p + i + 1]) near++;
+                }
+                chunk.cells[r << CHUNK_BITS | c] = (byte) near;
+            }
+        }
+
+        Integer slot = spilled.get(key);
+        if (slot != null)
+            ReadSpill(chunk, slot);
+        if (lost && (explodedRow >> CHUNK_BITS) == chunkRow && (explodedCol >> CHUNK_BITS) == chunkCol)
+            chunk.cells[Local(explodedRow, explodedCol)] |= Board.EXPLODED_BIT;
+        return chunk;
+    }
+
+    // One long per row of the chunk: a fixed number of mines drawn with Floyd's sampling from a random
+    // generator seeded by the chunk coordinates, minus the 3x3 area around the first click
+    private long[] MineLayer(int chunkRow, int chunkCol) {
+        long[] layer = new long[CHUNK_SIZE];
+        SplittableRandom random = new SplittableRandom(Mix(seed ^ Mix(Pack(chunkRow, chunkCol))));
+        for (int j = CHUNK_CELLS - minesPerChunk; j < CHUNK_CELLS; j++) {
+            int index = random.nextInt(j + 1);
+            if ((layer[index >>> CHUNK_BITS] >>> (index & CHUNK_MASK) & 1) != 0)
+                index = j;
+            layer[index >>> CHUNK_BITS] |= 1L << (index & CHUNK_MASK);
+        }
+
+        if (started) {
+            for (int r = firstRow - 1; r <= firstRow + 1; r++) {
+                for (int c = firstCol - 1; c <= firstCol + 1; c++) {
+                    if ((r >> CHUNK_BITS) == chunkRow && (c >> CHUNK_BITS) == chunkCol)
+                        layer[r & CHUNK_MASK] &= ~(1L << (c & CHUNK_MASK));
+                }
+            }
+        }
+        return layer;
+    }
+
+    private static long Mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+    private void Evict(Chunk chunk) {
+        if (last == chunk)
+            last = null;
+        if (!chunk.modified)
+            return;
+
+        Integer slot = spilled.get(chunk.key);
+        if (slot == null) {
+            slot = spilled.size();
+            spilled.put(chunk.key, slot);
+        }
+
+        MappedByteBuffer segment = Segment(slot);
+        int offset = (slot % SLOTS_PER_SEGMENT) * SLOT_SIZE;
+        for (int i = 0; i < SLOT_SIZE; i++) {
+            int packed = 0;
+            for (int k = 0; k < 4; k++)
+                packed |= StateOf(chunk.cells[i * 4 + k]) << (k * 2);
+            segment.put(offset + i, (byte) packed);
+        }
+    }
+    private void ReadSpill(Chunk chunk, int slot) {
+        MappedByteBuffer segment = Segment(slot);
+        int offset = (slot % SLOTS_PER_SEGMENT) * SLOT_SIZE;
+        for (int i = 0; i < SLOT_SIZE; i++) {
+            int packed = segment.get(offset + i);
+            for (int k = 0; k < 4; k++)
+                chunk.cells[i * 4 + k] |= (byte) (((packed >>> (k * 2)) & 3) << Board.STATE_SHIFT);
+        }
+    }
+    private MappedByteBuffer Segment(int slot) {
+        int index = slot / SLOTS_PER_SEGMENT;
+        try {
+            if (spillChannel == null) {
+                spillPath = Files.createTempFile("minesweeper-", ".chunks");
+                spillPath.toFile().deleteOnExit();
+                spillChannel = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            while (segments.size() <= index) {
+                long position = (long) segments.size() * SLOTS_PER_SEGMENT * SLOT_SIZE;
+                segments.add(spillChannel.map(FileChannel.MapMode.READ_WRITE, position, (long) SLOTS_PER_SEGMENT * SLOT_SIZE));
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segments.get(index);
+    }
+    private void CloseSpill() {
+        segments.clear();
+        if (spillChannel == null)
+            return;
+
+        try {
+            spillChannel.close();
+            Files.deleteIfExists(spillPath);
+        }
+        catch (IOException e) {
+            // Only a temporary file left behind, deleted on exit anyway
+        }
+        spillChannel = null;
+        spillPath    = null;
+    }
+}
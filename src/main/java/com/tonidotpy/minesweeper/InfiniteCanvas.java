@@ -0,0 +1,208 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+
+// Viewport over an InfiniteBoard, drawn like BoardCanvas but without bounds to clamp to.
+// Drawing the viewport is what generates the chunks it reaches
+public class InfiniteCanvas extends Region {
+    private static final double MIN_CELL_SIZE = 8.0;
+    private static final double MAX_CELL_SIZE = 64.0;
+    private static final double ZOOM_FACTOR   = 1.1;
+
+    private final InfiniteBoard board;
+    private final Canvas canvas;
+    private final Runnable onLose;
+
+    private double cellSize;
+    private double offsetX, offsetY;
+
+    private final AnimationTimer drawTimer;
+    private boolean drawRequested;
+
+    private int pressedRow, pressedCol;
+    private boolean pressed;
+    private double dragX, dragY;
+
+
+    public InfiniteBoard getBoard() { return board; }
+
+
+    public InfiniteCanvas(InfiniteBoard board, Runnable onLose) {
+        super();
+
+        this.board  = board;
+        this.onLose = onLose;
+        canvas = new Canvas();
+        canvas.getGraphicsContext2D().setImageSmoothing(false);
+        this.getChildren().add(canvas);
+
+        cellSize = 24.0;
+        drawRequested = false;
+        drawTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drawRequested = false;
+                stop();
+                Draw();
+            }
+        };
+
+        board.AddListener(new InfiniteBoard.Listener() {
+            @Override
+            public void CellChanged(int row, int col) { RequestDraw(); }
+            @Override
+            public void BoardReset() { RequestDraw(); }
+        });
+
+        this.setOnMousePressed(this::Press);
+        this.setOnMouseDragged(this::Drag);
+        this.setOnMouseReleased(mouseEvent -> {
+            pressed = false;
+            RequestDraw();
+        });
+        this.setOnMouseClicked(this::Click);
+        this.setOnScroll(this::Scroll);
+    }
+
+
+
+    private void Press(MouseEvent mouseEvent) {
+        dragX = mouseEvent.getX();
+        dragY = mouseEvent.getY();
+
+        if (mouseEvent.getButton() == MouseButton.PRIMARY && !board.isLost()) {
+            pressed    = true;
+            pressedRow = RowAt(mouseEvent.getY());
+            pressedCol = ColAt(mouseEvent.getX());
+            RequestDraw();
+        }
+    }
+    private void Drag(MouseEvent mouseEvent) {
+        if (mouseEvent.getButton() != MouseButton.MIDDLE)
+            return;
+
+        Scroll(dragX - mouseEvent.getX(), dragY - mouseEvent.getY());
+        dragX = mouseEvent.getX();
+        dragY = mouseEvent.getY();
+    }
+    private void Click(MouseEvent mouseEvent) {
+        if (!mouseEvent.isStillSincePress() || board.isLost())
+            return;
+
+        int row = RowAt(mouseEvent.getY()), col = ColAt(mouseEvent.getX());
+        switch (mouseEvent.getButton()) {
+            case PRIMARY -> {
+                if (board.Click(row, col) == Board.Result.LOSE)
+                    onLose.run();
+            }
+            case SECONDARY -> board.ToggleState(row, col);
+        }
+    }
+
+    private void Scroll(ScrollEvent scrollEvent) {
+        if (scrollEvent.isControlDown()) {
+            double factor = (scrollEvent.getDeltaY() > 0) ? ZOOM_FACTOR : 1.0 / ZOOM_FACTOR;
+            Zoom(factor, scrollEvent.getX(), scrollEvent.getY());
+        }
+        else {
+            Scroll(-scrollEvent.getDeltaX(), -scrollEvent.getDeltaY());
+        }
+        scrollEvent.consume();
+    }
+    public void Scroll(double dx, double dy) {
+        offsetX += dx;
+        offsetY += dy;
+        RequestDraw();
+    }
+    public void Zoom(double factor, double pivotX, double pivotY) {
+        double size = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellSize * factor));
+        double scale = size / cellSize;
+
+        offsetX = (offsetX + pivotX) * scale - pivotX;
+        offsetY = (offsetY + pivotY) * scale - pivotY;
+        cellSize = size;
+        RequestDraw();
+    }
+    // Puts the cell in the middle of the viewport
+    public void Centre(int row, int col) {
+        offsetX = (col + 0.5) * cellSize - canvas.getWidth() / 2.0;
+        offsetY = (row + 0.5) * cellSize - canvas.getHeight() / 2.0;
+        RequestDraw();
+    }
+
+    private int RowAt(double y) { return (int) Math.floor((y - canvas.getLayoutY() + offsetY) / cellSize); }
+    private int ColAt(double x) { return (int) Math.floor((x - canvas.getLayoutX() + offsetX) / cellSize); }
+
+
+    public void RequestDraw() {
+        if (!drawRequested) {
+            drawRequested = true;
+            drawTimer.start();
+        }
+    }
+    public void Draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth(), height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+
+        int firstRow = (int) Math.floor(offsetY / cellSize), firstCol = (int) Math.floor(offsetX / cellSize);
+        int lastRow  = (int) Math.floor((offsetY + height) / cellSize);
+        int lastCol  = (int) Math.floor((offsetX + width) / cellSize);
+
+        CellSprites sprites = ImageManager.getCellSprites((int) Math.round(cellSize));
+        for (int r = firstRow; r <= lastRow; r++) {
+            double y = r * cellSize - offsetY;
+            for (int c = firstCol; c <= lastCol; c++) {
+                double x = c * cellSize - offsetX;
+                gc.drawImage(CellImage(sprites, r, c), x, y, cellSize, cellSize);
+            }
+        }
+    }
+
+    // Once the game is lost the mines inside the viewport are shown, the board itself is not touched
+    private Image CellImage(CellSprites sprites, int row, int col) {
+        return switch (board.getState(row, col)) {
+            case SHOWN -> {
+                if (board.isExploded(row, col))
+                    yield sprites.getExplodedImage();
+                yield board.isMine(row, col) ? sprites.getMineImage() : sprites.getNumImage(board.getTotNearMines(row, col));
+            }
+            case FLAG          -> sprites.getFlagImage();
+            case QUESTION_MARK -> sprites.getQuestionMarkImage();
+            case EMPTY -> {
+                if (board.isLost() && board.isMine(row, col))
+                    yield sprites.getMineImage();
+                if (pressed && row == pressedRow && col == pressedCol)
+                    yield sprites.getEmptyPressedImage();
+                yield sprites.getEmptyImage();
+            }
+        };
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double x = snappedLeftInset(), y = snappedTopInset();
+        double w = Math.max(0.0, getWidth() - x - snappedRightInset());
+        double h = Math.max(0.0, getHeight() - y - snappedBottomInset());
+
+        canvas.relocate(x, y);
+        if (canvas.getWidth() != w || canvas.getHeight() != h) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            RequestDraw();
+        }
+    }
+
+    public void Reset(long seed) {
+        board.Reset(seed);
+        pressed = false;
+        Centre(0, 0);
+    }
+}
@@ -0,0 +1,78 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+// Window for the infinite mode: a viewport over an unbounded board and a status line
+public class InfiniteWindow extends Stage {
+    private static final double DENSITY = 0.16;
+    // Chunks kept in memory, enough for a full HD viewport at the smallest zoom
+    private static final int CACHE_CHUNKS = 256;
+
+    private final InfiniteBoard board;
+    private final InfiniteCanvas view;
+    private final Label status;
+    private final Timeline statusRefresh;
+
+
+    public InfiniteWindow(Window owner) {
+        super();
+
+        board = new InfiniteBoard(Board.NewSeed(), DENSITY, CACHE_CHUNKS);
+        view  = new InfiniteCanvas(board, this::Lose);
+        view.setPrefSize(720, 540);
+
+        Button newGame = new Button("New game");
+        Button centre  = new Button("Centre");
+        newGame.setOnAction(e -> view.Reset(Board.NewSeed()));
+        centre.setOnAction(e -> view.Centre(0, 0));
+
+        status = new Label();
+        HBox bar = new HBox(6, newGame, centre, status);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(6));
+
+        BorderPane root = new BorderPane(view);
+        root.setTop(bar);
+
+        statusRefresh = new Timeline(new KeyFrame(Duration.millis(250), e -> UpdateStatus()));
+        statusRefresh.setCycleCount(Timeline.INDEFINITE);
+        statusRefresh.play();
+
+        this.initOwner(owner);
+        this.setTitle("Infinite board");
+        this.setScene(new Scene(root));
+        this.setOnShown(e -> view.Centre(0, 0));
+        this.setOnHidden(e -> {
+            statusRefresh.stop();
+            board.close();
+        });
+        UpdateStatus();
+    }
+
+
+    private void UpdateStatus() {
+        status.setText("Revealed " + board.getTotCellShown() + "   Flags " + board.getTotFlags()
+                + "   Chunks " + board.getTotCachedChunks() + " cached, " + board.getTotSpilledChunks() + " spilled");
+    }
+    private void Lose() {
+        UpdateStatus();
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.initOwner(this);
+        alert.setTitle("Sconfitta");
+        alert.setHeaderText(null);
+        alert.setContentText("Hai perso dopo aver scoperto " + board.getTotCellShown() + " caselle");
+        alert.show();
+    }
+}
@@ -0,0 +1,298 @@
+package com.tonidotpy.minesweeper;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Append-only log of the moves of a game, with undo, redo and jumps to any position.
+// A position is rebuilt on a headless board from the nearest snapshot before it and then copied into
+// the game board at once. Snapshots are only taken while seeking, every 'interval' moves, and are
+// thinned out by doubling the interval whenever they would go over a fixed memory budget.
+// File format, little endian: magic, then varints version, rows, cols, mines, the 8 bytes of the seed,
+// a varint count and one varint per move: zigzag distance from the cell of the previous move,
+// shifted left by 2 bits, with the move type in the low bits
+public class Journal implements Board.Listener {
+    private static final int MAGIC   = 0x4A57534D; // "MSWJ"
+    private static final int VERSION = 1;
+    private static final int MIN_INTERVAL = 64;
+    private static final long SNAPSHOT_BUDGET = 64L << 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final Board.Move[] MOVES = Board.Move.values();
+
+    // A copy of the board at a position, null for a new board
+    private record Snapshot(Board board) {}
+
+    // A position as the snapshot before it and the moves after it. Snapshots are never changed once
+    // taken, so the position can be rebuilt on another thread while the journal goes on
+    record Replay(long seed, Board start, int[] moves) {
+        void ApplyTo(Board target) {
+            if (start == null)
+                target.Reset(seed);
+            else
+                target.CopyFrom(start);
+            for (int move : moves)
+                Apply(target, move);
+        }
+    }
+
+
+    private final int rows, cols, mines;
+    private final long seed;
+
+    // Cell index << 2 | move type
+    private int[] moves;
+    private int totMoves;
+    // Moves applied to the board, less than totMoves after an undo
+    private int position;
+
+    private Snapshot[] snapshots;
+    private int interval;
+    private final int maxSnapshots;
+
+    private Board board;
+    private Board scratch;
+
+
+    public int getPosition() { return position; }
+    public int getTotMoves() { return totMoves; }
+    // Null once detached, the journal then only keeps its moves
+    public Board getBoard() { return board; }
+    public boolean CanUndo() { return board != null && position > 0; }
+    public boolean CanRedo() { return board != null && position < totMoves; }
+    Replay getReplay() {
+        int k = Nearest(position);
+        return new Replay(seed, snapshots[k].board(), Arrays.copyOfRange(moves, k * interval, position));
+    }
+
+
+    // Starts recording the moves made on the board from its current position
+    public Journal(Board board) {
+        this(board.getTotRows(), board.getTotCols(), board.getTotMines(), board.getSeed(), new int[64], 0);
+        Attach(board);
+    }
+    private Journal(int rows, int cols, int mines, long seed, int[] moves, int totMoves) {
+        this.rows     = rows;
+        this.cols     = cols;
+        this.mines    = mines;
+        this.seed     = seed;
+        this.moves    = moves;
+        this.totMoves = totMoves;
+        this.position = 0;
+        this.interval = MIN_INTERVAL;
+        this.maxSnapshots = (int) Math.max(2, Math.min(Integer.MAX_VALUE, SNAPSHOT_BUDGET / ((long) rows * cols + 4L * mines)));
+        this.snapshots = new Snapshot[1];
+    }
+
+    // A journal read from a file starts from a new board with the same size and seed
+    public Board NewBoard() {
+        return new Board(rows, cols, mines, seed);
+    }
+    public void Attach(Board board) {
+        Detach();
+        this.board = board;
+        position = 0;
+
+        boolean blank = !board.isGenerated() && board.getTotCellShown() == 0 && board.getTotFlags() == 0 && board.getTotQuestionMarks() == 0;
+        snapshots[0] = new Snapshot(blank ? null : Copy(board));
+        board.AddListener(this);
+    }
+    public void Detach() {
+        if (board != null)
+            board.RemoveListener(this);
+        board = null;
+    }
+
+
+    @Override
+    public void CellChanged(int row, int col) {}
+    @Override
+    public void Moved(Board.Move move, int row, int col) {
+        // A move after an undo replaces the moves that had been undone
+        if (position < totMoves) {
+            totMoves = position;
+            for (int k = position / interval + 1; k < snapshots.length; k++)
+                snapshots[k] = null;
+        }
+
+        if (totMoves == moves.length)
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        moves[totMoves++] = (row * cols + col) << 2 | move.ordinal();
+        position = totMoves;
+    }
+
+    public boolean Undo() {
+        if (!CanUndo())
+            return false;
+        Seek(position - 1);
+        return true;
+    }
+    public boolean Redo() {
+        if (!CanRedo())
+            return false;
+        Seek(position + 1);
+        return true;
+    }
+
+    // Brings the board to the position after the given number of moves, without rendering the moves
+    // in between: the board only sees the final cells, with a single reset notification
+    public void Seek(int target) {
+        if (board == null)
+            return;
+        target = Math.max(0, Math.min(target, totMoves));
+
+        int k = Nearest(target);
+        Load(snapshots[k]);
+
+        for (int p = k * interval; p < target; p++) {
+            Apply(scratch, moves[p]);
+            if ((p + 1) % interval == 0)
+                Store(p + 1);
+        }
+
+        board.CopyFrom(scratch);
+        position = target;
+    }
+
+    // Index of the last snapshot at or before a position
+    private int Nearest(int target) {
+        int k = Math.min(target / interval, snapshots.length - 1);
+        while (snapshots[k] == null)
+            k--;
+        return k;
+    }
+    private void Load(Snapshot snapshot) {
+        if (scratch == null)
+            scratch = new Board(rows, cols, mines, seed);
+
+        if (snapshot.board() == null)
+            scratch.Reset(seed);
+        else
+            scratch.CopyFrom(snapshot.board());
+    }
+    // Keeps the position of the scratch board, which is after the given number of moves
+    private void Store(int at) {
+        while (at / interval >= maxSnapshots) {
+            // Over budget: every other snapshot goes and the interval doubles
+            for (int k = 1; k < snapshots.length; k++)
+                snapshots[k] = (2 * k < snapshots.length) ? snapshots[2 * k] : null;
+            interval *= 2;
+        }
+        if (at % interval != 0)
+            return;
+
+        int k = at / interval;
+        if (k >= snapshots.length)
+            snapshots = Arrays.copyOf(snapshots, Math.min(maxSnapshots, Math.max(k + 1, snapshots.length * 2)));
+        if (snapshots[k] == null)
+            snapshots[k] = new Snapshot(Copy(scratch));
+    }
+    private Board Copy(Board source) {
+        Board copy = new Board(rows, cols, mines, seed);
+        copy.CopyFrom(source);
+        return copy;
+    }
+
+    private static void Apply(Board target, int move) {
+        int index = move >>> 2, row = index / target.getTotCols(), col = index % target.getTotCols();
+        switch (MOVES[move & 3]) {
+            case REVEAL, CHORD -> target.Click(row, col);
+            case TOGGLE        -> target.ToggleState(row, col);
+        }
+    }
+
+
+    public void Write(Path path) throws IOException {
+        if (snapshots[0].board() != null)
+            throw new IOException("the game did not start from a new board");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            PutVarint(buffer, VERSION);
+            PutVarint(buffer, rows);
+            PutVarint(buffer, cols);
+            PutVarint(buffer, mines);
+            buffer.putLong(seed);
+            PutVarint(buffer, totMoves);
+
+            int previous = 0;
+            for (int i = 0; i < totMoves; i++) {
+                if (buffer.remaining() < 10)
+                    Flush(channel, buffer);
+
+                int index = moves[i] >>> 2, delta = index - previous;
+                PutVarint(buffer, (long) ((delta << 1) ^ (delta >> 31)) << 2 | (moves[i] & 3));
+                previous = index;
+            }
+            Flush(channel, buffer);
+        }
+    }
+
+    public static Journal Read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.remaining() < 4 || buffer.getInt() != MAGIC)
+                throw new IOException("not a minesweeper replay");
+            if (GetVarint(buffer) != VERSION)
+                throw new IOException("unsupported replay version");
+
+            int rows  = (int) GetVarint(buffer);
+            int cols  = (int) GetVarint(buffer);
+            int mines = (int) GetVarint(buffer);
+            long seed = buffer.getLong();
+            long count = GetVarint(buffer);
+            if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE / 4 || count < 0 || count > buffer.remaining())
+                throw new IOException("corrupted replay");
+
+            int[] moves = new int[(int) Math.max(64, count)];
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                long value = GetVarint(buffer);
+                long zigzag = value >>> 2;
+                int index = previous + (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+                if (index < 0 || index >= rows * cols || (value & 3) >= MOVES.length)
+                    throw new IOException("corrupted replay");
+
+                moves[i] = index << 2 | (int) (value & 3);
+                previous = index;
+            }
+            return new Journal(rows, cols, mines, seed, moves, (int) count);
+        }
+        catch (BufferUnderflowException e) {
+            throw new IOException("truncated replay");
+        }
+    }
+
+    private static void PutVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    private static long GetVarint(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("corrupted replay");
+    }
+    private static void Flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,30 @@
+package com.tonidotpy.minesweeper;
+
+// Listens to the board of a journal and moves along when the journal is replaced. The board is
+// remembered rather than asked to the journal, which forgets it once detached
+final class JournalFollower {
+    private final Board.Listener listener;
+    private Board board;
+
+
+    JournalFollower(Runnable onChange) {
+        this.listener = new Board.Listener() {
+            @Override
+            public void CellChanged(int row, int col) {}
+            @Override
+            public void BoardReset() { onChange.run(); }
+            @Override
+            public void Moved(Board.Move move, int row, int col) { onChange.run(); }
+        };
+    }
+
+
+    // Follows the board of another journal, null to stop following any
+    void Follow(Journal journal) {
+        if (board != null)
+            board.RemoveListener(listener);
+        board = (journal != null) ? journal.getBoard() : null;
+        if (board != null)
+            board.AddListener(listener);
+    }
+}
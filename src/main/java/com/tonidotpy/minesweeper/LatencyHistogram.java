@@ -0,0 +1,91 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.Arrays;
+
+// Log-linear histogram of durations in nanoseconds with 16 sub-buckets per power of two (about 6% precision).
+// Recording only increments a counter, it never allocates
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS  = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts;
+    private long totCount;
+    private long total;
+    private long min, max;
+
+
+    public long getCount() { return totCount; }
+    public long getMin()   { return totCount == 0 ? 0 : min; }
+    public long getMax()   { return max; }
+    public double getMean() { return totCount == 0 ? 0.0 : (double) total / totCount; }
+
+
+    public LatencyHistogram() {
+        counts = new long[64 << SUB_BUCKET_BITS];
+        Reset();
+    }
+
+
+    public void Record(long value) {
+        if (value < 0)
+            value = 0;
+
+        counts[BucketOf(value)]++;
+        totCount++;
+        total += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    public void Add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totCount += other.totCount;
+        total    += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    // Value below which the given percentage of the recorded values fall
+    public long getPercentile(double percentile) {
+        if (totCount == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target)
+                return Math.min(max, HighestOf(i));
+        }
+        return max;
+    }
+
+    public void Reset() {
+        Arrays.fill(counts, 0);
+        totCount = 0;
+        total    = 0;
+        min      = Long.MAX_VALUE;
+        max      = 0;
+    }
+
+
+    private static int BucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + sub;
+    }
+    private static long HighestOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT)
+            return bucket;
+
+        int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKET_COUNT;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKET_COUNT + sub) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+}
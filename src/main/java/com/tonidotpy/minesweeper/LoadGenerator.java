@@ -0,0 +1,138 @@
+package com.tonidotpy.minesweeper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Command line client keeping a server busy with random games and measuring it from the outside:
+//   --load [--port P] [--connections N] [--seconds S] [--rows R] [--cols C] [--mines M]
+// Every connection plays game after game with random clicks and the odd flag, one request at a time
+public class LoadGenerator {
+    // State owned by a single connection, merged into the report at the end. Moves and session
+    // requests (NEW, CLOSE, QUIT) are timed apart, so that only moves count as moves
+    private static class Client {
+        final LatencyHistogram latency  = new LatencyHistogram();
+        final LatencyHistogram sessions = new LatencyHistogram();
+        long games, errors;
+    }
+
+
+    private final int port;
+    private final int rows, cols, mines;
+
+
+    public LoadGenerator(int port, int rows, int cols, int mines) {
+        this.port  = port;
+        this.rows  = rows;
+        this.cols  = cols;
+        this.mines = mines;
+    }
+
+
+    public static void Main(String[] args) {
+        int port = Server.DEFAULT_PORT, connections = 64, seconds = 10;
+        int rows = 16, cols = 30, mines = 99;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--load"        -> {}
+                case "--port"        -> port        = Integer.parseInt(args[++i]);
+                case "--connections" -> connections = Integer.parseInt(args[++i]);
+                case "--seconds"     -> seconds     = Integer.parseInt(args[++i]);
+                case "--rows"        -> rows        = Integer.parseInt(args[++i]);
+                case "--cols"        -> cols        = Integer.parseInt(args[++i]);
+                case "--mines"       -> mines       = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        System.out.printf("Loading port %d with %d connections for %d s, %dx%d with %d mines%n", port, connections, seconds, rows, cols, mines);
+        System.out.print(new LoadGenerator(port, rows, cols, mines).Run(connections, seconds * 1_000_000_000L));
+    }
+
+    public String Run(int connections, long duration) {
+        ExecutorService executor = Server.NewThreadPerTaskExecutor("load");
+        long start = System.nanoTime(), deadline = start + duration;
+
+        ArrayList<Future<Client>> results = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            long seed = i;
+            results.add(executor.submit(() -> Play(seed, deadline)));
+        }
+
+        LatencyHistogram latency = new LatencyHistogram(), sessions = new LatencyHistogram();
+        long games = 0, errors = 0, failed = 0;
+        for (Future<Client> result : results) {
+            try {
+                Client client = result.get();
+                latency.Add(client.latency);
+                sessions.Add(client.sessions);
+                games  += client.games;
+                errors += client.errors;
+            }
+            catch (Exception e) {
+                failed++;
+            }
+        }
+        executor.shutdown();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        return String.format("Moves      %d%n", latency.getCount())
+             + String.format("Moves/sec  %.0f%n", latency.getCount() / elapsed)
+             + String.format("Games      %d%n", games)
+             + String.format("Errors     %d, failed connections %d%n", errors, failed)
+             + String.format("Latency (us) p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                    latency.getPercentile(50) / 1e3, latency.getPercentile(90) / 1e3,
+                    latency.getPercentile(99) / 1e3, latency.getPercentile(99.9) / 1e3, latency.getMax() / 1e3)
+             + String.format("Sessions   %d requests, p50 %.1f  p99 %.1f  max %.1f us%n", sessions.getCount(),
+                    sessions.getPercentile(50) / 1e3, sessions.getPercentile(99) / 1e3, sessions.getMax() / 1e3);
+    }
+
+    private Client Play(long seed, long deadline) throws IOException {
+        Client client = new Client();
+        SplittableRandom random = new SplittableRandom(seed);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+
+            while (System.nanoTime() < deadline) {
+                Request(client.sessions, client, in, out, "NEW " + rows + " " + cols + " " + mines + " " + random.nextLong());
+                String answer;
+                do {
+                    String move = (random.nextInt(8) == 0) ? "TOGGLE " : "CLICK ";
+                    answer = Request(client.latency, client, in, out, move + random.nextInt(rows) + " " + random.nextInt(cols));
+                } while (!answer.startsWith("OK WIN") && !answer.startsWith("OK LOSE") && System.nanoTime() < deadline);
+
+                Request(client.sessions, client, in, out, "CLOSE");
+                client.games++;
+            }
+            Request(client.sessions, client, in, out, "QUIT");
+        }
+        return client;
+    }
+    // Sends a request and waits for its answer, recording the round trip into the given histogram
+    private static String Request(LatencyHistogram histogram, Client client, BufferedReader in, Writer out, String request) throws IOException {
+        long start = System.nanoTime();
+        out.write(request);
+        out.write('\n');
+        out.flush();
+        String answer = in.readLine();
+        histogram.Record(System.nanoTime() - start);
+
+        if (answer == null)
+            throw new IOException("Connection closed by the server");
+        if (answer.startsWith("ERR"))
+            client.errors++;
+        return answer;
+    }
+}
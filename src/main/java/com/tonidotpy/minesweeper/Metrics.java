@@ -0,0 +1,98 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Named counters and histograms for the hot paths of the game. Metrics are created when first asked
+// for and the hot paths keep a reference to them, so recording is a plain field update that never
+// allocates. A registry is not thread safe: the one of the game is only used on the FX thread
+public class Metrics {
+    public static class Counter {
+        private long value;
+
+        public long getValue() { return value; }
+
+        public void Increment() { value++; }
+        public void Add(long amount) { value += amount; }
+        public void Reset() { value = 0; }
+    }
+
+
+    private final LinkedHashMap<String, Counter> counters;
+    // Durations in nanoseconds
+    private final LinkedHashMap<String, LatencyHistogram> timers;
+    // Plain values, such as the cells revealed by a move
+    private final LinkedHashMap<String, LatencyHistogram> distributions;
+
+
+    public Metrics() {
+        counters      = new LinkedHashMap<>();
+        timers        = new LinkedHashMap<>();
+        distributions = new LinkedHashMap<>();
+    }
+
+
+    public Counter getCounter(String name) { return counters.computeIfAbsent(name, k -> new Counter()); }
+    public LatencyHistogram getTimer(String name) { return timers.computeIfAbsent(name, k -> new LatencyHistogram()); }
+    public LatencyHistogram getDistribution(String name) { return distributions.computeIfAbsent(name, k -> new LatencyHistogram()); }
+
+    // Adds the values of another registry, such as the one of a board played on another thread
+    public void Add(Metrics other) {
+        other.counters.forEach((name, counter) -> getCounter(name).Add(counter.getValue()));
+        other.timers.forEach((name, timer) -> getTimer(name).Add(timer));
+        other.distributions.forEach((name, distribution) -> getDistribution(name).Add(distribution));
+    }
+
+    public void Reset() {
+        counters.values().forEach(Counter::Reset);
+        timers.values().forEach(LatencyHistogram::Reset);
+        distributions.values().forEach(LatencyHistogram::Reset);
+    }
+
+
+    // One line per metric, durations in microseconds
+    public String ToText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            text.append(String.format(Locale.ROOT, "%-22s %d%n", entry.getKey(), entry.getValue().getValue()));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : timers.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            text.append(String.format(Locale.ROOT, "%-22s n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus%n",
+                    entry.getKey(), h.getCount(), h.getMean() / 1e3, h.getPercentile(50) / 1e3, h.getPercentile(99) / 1e3, h.getMax() / 1e3));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : distributions.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            text.append(String.format(Locale.ROOT, "%-22s n=%d mean=%.1f p50=%d p99=%d max=%d%n",
+                    entry.getKey(), h.getCount(), h.getMean(), h.getPercentile(50), h.getPercentile(99), h.getMax()));
+        }
+        return text.toString();
+    }
+
+    // The same snapshot as a JSON object, durations in nanoseconds
+    public String ToJson() {
+        StringBuilder json = new StringBuilder("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue().getValue());
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"timers\": {");
+        AppendHistograms(json, timers);
+        json.append("\n  },\n  \"distributions\": {");
+        AppendHistograms(json, distributions);
+        json.append("\n  }\n}\n");
+        return json.toString();
+    }
+    private static void AppendHistograms(StringBuilder json, Map<String, LatencyHistogram> histograms) {
+        String separator = "\n";
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": ")
+                .append(String.format(Locale.ROOT, "{\"count\": %d, \"min\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d}",
+                        h.getCount(), h.getMin(), h.getMean(), h.getPercentile(50), h.getPercentile(90), h.getPercentile(99), h.getMax()));
+            separator = ",\n";
+        }
+    }
+}
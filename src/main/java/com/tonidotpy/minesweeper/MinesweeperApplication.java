@@ -1,26 +1,83 @@
 package com.tonidotpy.minesweeper;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.util.List;
+
 public class MinesweeperApplication extends Application {
     private Scene scene;
     private Game game;
 
+    // Spans from main to start, which is mostly the FX toolkit and class initialization
+    private static Startup.Phase launch;
+
     @Override
     public void start(Stage stage) {
+        if (launch != null)
+            launch.close();
+        Startup.Phase firstPulse = Startup.Begin("First pulse");
+
+        List<String> args = getParameters().getRaw();
+        // --async-board: show the window first and build the board in the background
+        boolean asyncBoard = args.contains("--async-board");
+        // --startup-profile: print the startup phases once the first frame is laid out
+        boolean profile = args.contains("--startup-profile");
+        // --exit-after-startup: quit right after the first frame, to time cold starts or dump a CDS archive
+        boolean exit = args.contains("--exit-after-startup");
+
         stage.setTitle("Minesweeper");
 
-        game = new Game();
+        try (Startup.Phase phase = Startup.Begin("Game")) {
+            game = new Game(!asyncBoard);
+        }
         scene = new Scene(game);
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                firstPulse.close();
+                if (profile)
+                    Startup.Report(System.err);
+                if (exit)
+                    Platform.exit();
+            }
+        });
         stage.setScene(scene);
         stage.show();
 
         game.Resize();
+        if (asyncBoard)
+            game.SetGridAsync(15, 15, 50);
+    }
+
+    @Override
+    public void stop() {
+        if (game != null)
+            game.Close();
     }
 
     public static void main(String[] args) {
-        launch();
+        // Headless modes, chosen by the first argument
+        if (args.length > 0) {
+            switch (args[0]) {
+                case "--simulate" -> {
+                    Simulator.Main(args);
+                    return;
+                }
+                case "--serve" -> {
+                    Server.Main(args);
+                    return;
+                }
+                case "--load" -> {
+                    LoadGenerator.Main(args);
+                    return;
+                }
+            }
+        }
+        launch = Startup.Begin("Launch");
+        launch(args);
     }
-}
\ No newline at end of file
+}
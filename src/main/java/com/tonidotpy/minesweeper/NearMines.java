@@ -0,0 +1,141 @@
+package com.tonidotpy.minesweeper;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Near mine counts of a whole board from a bitboard of its mines. Rows are copied out of the bitboard
+// into a rolling window of three, each with a zero word on both sides. For every row the eight neighbour
+// bitboards (the rows above and below, each shifted left and right, and the row itself shifted) are
+// added with bit sliced adders into four bit planes, so 64 cells are counted with a few dozen word
+// operations. The planes are then spread back into the cell bytes 8 cells at a time.
+// The adders run on the Vector API when jdk.incubator.vector is in the module graph
+// (--add-modules jdk.incubator.vector), on plain longs otherwise
+abstract class NearMines {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    // Byte k of SPREAD[b] is bit k of b
+    private static final long[] SPREAD = new long[256];
+    private static final long LOW_BITS = 0x0101010101010101L;
+    // Exploded and state bits, left as they are
+    private static final long KEEP = 0xE0E0E0E0E0E0E0E0L;
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            long spread = 0;
+            for (int k = 0; k < 8; k++)
+                spread |= (long) (b >>> k & 1) << (k * 8);
+            SPREAD[b] = spread;
+        }
+    }
+
+    private static final NearMines INSTANCE = Select();
+
+    static NearMines getInstance() { return INSTANCE; }
+
+    // The vector path is only loaded when its module is present, -Dminesweeper.vector=false forces
+    // the scalar one
+    private static NearMines Select() {
+        if (Boolean.parseBoolean(System.getProperty("minesweeper.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (NearMines) Class.forName("com.tonidotpy.minesweeper.VectorNearMines").getDeclaredConstructor().newInstance();
+            }
+            catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar path
+            }
+        }
+        return new Scalar();
+    }
+
+    abstract String getName();
+
+    // Adds the neighbours of the words [from, to) of the row starting at 'mid' into the planes. The rows
+    // at 'up' and 'down' and the words just before and after each row can always be read
+    abstract void Planes(long[] bits, int up, int mid, int down, int from, int to, long[] p0, long[] p1, long[] p2, long[] p3);
+
+
+    // Writes the mine bit and the near mine count of every cell, leaving exploded and state bits alone
+    void Calculate(byte[] cells, Bitboard mines) {
+        int totRows = mines.totRows, totCols = mines.totCols, words = mines.words;
+        long[] p0 = new long[words], p1 = new long[words], p2 = new long[words], p3 = new long[words];
+
+        // Row r is in slot r % 3 of the window, the row above the first one stays zero
+        int stride = words + 2;
+        long[] window = new long[3 * stride];
+        mines.RowWords(0, window, 1);
+
+        for (int r = 0; r < totRows; r++) {
+            int up = ((r + 2) % 3) * stride + 1, mid = (r % 3) * stride + 1, down = ((r + 1) % 3) * stride + 1;
+            if (r + 1 < totRows)
+                mines.RowWords(r + 1, window, down);
+            else
+                Arrays.fill(window, down, down + words, 0L);
+            Planes(window, up, mid, down, 0, words, p0, p1, p2, p3);
+
+            int base = r * totCols, c = 0;
+            for (; c + 8 <= totCols; c += 8) {
+                int w = c >>> 6, shift = c & 63;
+                long near = SPREAD[(int) (p0[w] >>> shift) & 0xFF]
+                        | SPREAD[(int) (p1[w] >>> shift) & 0xFF] << 1
+                        | SPREAD[(int) (p2[w] >>> shift) & 0xFF] << 2
+                        | SPREAD[(int) (p3[w] >>> shift) & 0xFF] << 3;
+                long mine = SPREAD[(int) (window[mid + w] >>> shift) & 0xFF];
+                long old = (long) LONGS.get(cells, base + c);
+                LONGS.set(cells, base + c, (old & KEEP) | (mine << 4) | (near & ~(mine * 0xFF)));
+            }
+            for (; c < totCols; c++) {
+                int w = c >>> 6;
+                int near = (int) (p0[w] >>> c & 1) | (int) (p1[w] >>> c & 1) << 1 | (int) (p2[w] >>> c & 1) << 2 | (int) (p3[w] >>> c & 1) << 3;
+                int old = cells[base + c] & 0xE0;
+                cells[base + c] = (byte) (((window[mid + w] >>> c & 1) != 0) ? old | Board.MINE_BIT : old | near);
+            }
+        }
+    }
+
+    // Mine bits of the cells gathered 8 at a time: the multiplication moves bit 4 of byte k to bit k
+    static void Gather(byte[] cells, Bitboard mines) {
+        long[] bits = mines.bits;
+        mines.Clear();
+        int i = 0;
+        for (; i + 8 <= cells.length; i += 8) {
+            long flags = ((long) LONGS.get(cells, i) >>> 4) & LOW_BITS;
+            bits[i >>> 6] |= ((flags * 0x0102040810204080L) >>> 56) << (i & 63);
+        }
+        for (; i < cells.length; i++) {
+            if ((cells[i] & Board.MINE_BIT) != 0)
+                mines.Set(i);
+        }
+    }
+
+
+    static final class Scalar extends NearMines {
+        @Override
+        String getName() { return "scalar"; }
+
+        @Override
+        void Planes(long[] bits, int up, int mid, int down, int from, int to, long[] p0, long[] p1, long[] p2, long[] p3) {
+            for (int i = from; i < to; i++) {
+                long n  = bits[up + i],   nw = (n << 1) | (bits[up + i - 1] >>> 63),   ne = (n >>> 1) | (bits[up + i + 1] << 63);
+                long s  = bits[down + i], sw = (s << 1) | (bits[down + i - 1] >>> 63), se = (s >>> 1) | (bits[down + i + 1] << 63);
+                long x  = bits[mid + i];
+                long w  = (x << 1) | (bits[mid + i - 1] >>> 63), e = (x >>> 1) | (bits[mid + i + 1] << 63);
+
+                // Two full adders and a half adder give three ones and three twos
+                long s1 = n ^ nw ^ ne, c1 = (n & nw) | (ne & (n ^ nw));
+                long s2 = s ^ sw ^ se, c2 = (s & sw) | (se & (s ^ sw));
+                long s3 = w ^ e,       c3 = w & e;
+                // Ones, and a fourth two from their carry
+                long ones = s1 ^ s2 ^ s3, c4 = (s1 & s2) | (s3 & (s1 ^ s2));
+                // Four twos into twos, fours and eights
+                long t1 = c1 ^ c2 ^ c3, d1 = (c1 & c2) | (c3 & (c1 ^ c2));
+                long twos = t1 ^ c4, d2 = t1 & c4;
+
+                p0[i] = ones;
+                p1[i] = twos;
+                p2[i] = d1 ^ d2;
+                p3[i] = d1 & d2;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Finds seeds of boards that can be solved by pure deduction when opened from their centre cell.
+// Candidates are verified in parallel by the Solver, the first one that passes cancels the others.
+// A few verified seeds per difficulty are kept ready and refilled in the background
+public class NoGuessGenerator {
+    private static final int POOL_SIZE = 4;
+    // Candidates tried by each worker before giving up, for densities where a board is too unlikely
+    private static final int MAX_ATTEMPTS = 20_000;
+
+    private record Key(int rows, int cols, int mines) {}
+
+
+    private final ExecutorService executor;
+    private final int workers;
+    private final HashMap<Key, ArrayBlockingQueue<Long>> pools;
+    private final HashMap<Key, AtomicBoolean> refilling;
+
+
+    public NoGuessGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    public NoGuessGenerator(int workers) {
+        this.workers = Math.max(1, workers);
+        this.pools     = new HashMap<>();
+        this.refilling = new HashMap<>();
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "no-guess-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public static int StartRow(int rows) { return rows / 2; }
+    public static int StartCol(int cols) { return cols / 2; }
+
+
+
+    // Seed of a verified board: taken from the pool if there is one ready, searched otherwise.
+    // The pool is refilled in the background either way
+    public synchronized CompletableFuture<Long> Next(int rows, int cols, int mines) {
+        Key key = new Key(rows, cols, mines);
+        Long seed = Pool(key).poll();
+        Refill(key);
+        return (seed != null) ? CompletableFuture.completedFuture(seed) : Search(rows, cols, mines);
+    }
+
+    // Starts filling the pool of a difficulty, so that the first game of it does not wait
+    public synchronized void Prepare(int rows, int cols, int mines) {
+        Refill(new Key(rows, cols, mines));
+    }
+
+    private ArrayBlockingQueue<Long> Pool(Key key) {
+        return pools.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(POOL_SIZE));
+    }
+    private void Refill(Key key) {
+        ArrayBlockingQueue<Long> pool = Pool(key);
+        AtomicBoolean running = refilling.computeIfAbsent(key, k -> new AtomicBoolean());
+        if (pool.remainingCapacity() == 0 || !running.compareAndSet(false, true))
+            return;
+
+        Search(key.rows(), key.cols(), key.mines()).whenComplete((seed, error) -> {
+            running.set(false);
+            if (error == null && pool.offer(seed)) {
+                synchronized (this) {
+                    Refill(key);
+                }
+            }
+        });
+    }
+
+    // Verifies random candidates on every worker until one of them passes
+    public CompletableFuture<Long> Search(int rows, int cols, int mines) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(workers);
+        long base = Board.NewSeed();
+
+        for (int w = 0; w < workers; w++) {
+            SplittableRandom random = new SplittableRandom(base + w);
+            executor.execute(() -> {
+                Board board = new Board(rows, cols, mines);
+                Solver solver = new Solver(board);
+                for (int attempt = 0; attempt < MAX_ATTEMPTS && !result.isDone(); attempt++) {
+                    long seed = random.nextLong();
+                    board.Reset(seed);
+                    if (IsNoGuess(board, solver)) {
+                        result.complete(seed);
+                        break;
+                    }
+                }
+                if (remaining.decrementAndGet() == 0)
+                    result.completeExceptionally(new IllegalStateException("No board without guesses found for " + rows + "x" + cols + " with " + mines + " mines"));
+            });
+        }
+        return result;
+    }
+
+    // Plays the board from its start cell clicking only the cells the solver proves safe
+    public static boolean IsNoGuess(Board board, Solver solver) {
+        Board.Result result = board.Click(StartRow(board.getTotRows()), StartCol(board.getTotCols()));
+        while (result == Board.Result.NONE) {
+            Solver.Hint hint = solver.getHint();
+            if (!hint.isSafe())
+                return false;
+
+            for (int cell : hint.getSafe()) {
+                int r = cell / board.getTotCols(), c = cell % board.getTotCols();
+                if (board.CanBeShown(r, c)) {
+                    result = board.Click(r, c);
+                    if (result != Board.Result.NONE)
+                        break;
+                }
+            }
+        }
+        return result == Board.Result.WIN;
+    }
+
+    public void Shutdown() {
+        executor.shutdownNow();
+    }
+}
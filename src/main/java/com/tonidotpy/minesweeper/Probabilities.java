@@ -0,0 +1,480 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Exact mine probability of every hidden cell, from the numbers shown and the total number of mines.
+// The frontier (hidden cells next to a number) is split into components that share no number.
+// Each component is counted by mine total with a memoized backtracking over its cells, the counts
+// of the components are then combined with the binomial number of ways to place the remaining
+// mines among the interior cells. Components are solved in parallel, and the counts of a component
+// are kept while it does not change, so a move only pays for the components around it.
+// Flags are not trusted, as in the Solver
+public class Probabilities {
+    public static class Result {
+        private final HashMap<Integer, Double> frontier;
+        private final double interior;
+        private final int best;
+        private final int totComponents, totCached;
+
+        // Mine probability of a hidden cell, by board index. Shown cells are not part of the result
+        public double getProbability(int index) { return frontier.getOrDefault(index, interior); }
+        public boolean isFrontier(int index) { return frontier.containsKey(index); }
+        // Probability of the hidden cells that are not next to any number
+        public double getInteriorProbability() { return interior; }
+        // Frontier cell least likely to be a mine, -1 without a frontier
+        public int getBest() { return best; }
+        public int getTotComponents() { return totComponents; }
+        public int getTotCached() { return totCached; }
+
+        Result(HashMap<Integer, Double> frontier, double interior, int best, int totComponents, int totCached) {
+            this.frontier = frontier;
+            this.interior = interior;
+            this.best     = best;
+            this.totComponents = totComponents;
+            this.totCached     = totCached;
+        }
+    }
+
+    // States a single component may go through before it falls back to an estimate
+    private static final long MAX_STATES = 1_000_000;
+
+    private static final ExecutorService EXECUTOR;
+    static {
+        AtomicInteger count = new AtomicInteger();
+        EXECUTOR = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "probabilities-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A component as the numbers it is made of: index, value and hidden neighbours of each
+    private record Signature(long[] numbers) {
+        @Override
+        public boolean equals(Object other) { return other instanceof Signature s && Arrays.equals(numbers, s.numbers); }
+        @Override
+        public int hashCode() { return Arrays.hashCode(numbers); }
+    }
+    // Ways to place k mines in the component and, for every cell, the ways where the cell is a mine.
+    // Null counts mean the enumeration was cut and 'estimate' holds local guesses instead
+    private record Counts(int[] cells, double[] solutions, double[][] mines, double[] estimate) {}
+
+
+    private final Board board;
+    private HashMap<Signature, Counts> cache;
+
+
+    public Probabilities(Board board) {
+        this.board = board;
+        this.cache = new HashMap<>();
+    }
+
+
+
+    // Must run on the thread that changes the board, the components are solved on the shared pool
+    public Result Calculate() {
+        int totRows = board.getTotRows(), totCols = board.getTotCols();
+        if (!board.isGenerated() || board.isLost() || board.isWon()) {
+            double interior = (double) board.getTotMines() / Math.max(1, board.getTotCells() - board.getTotCellShown());
+            return new Result(new HashMap<>(), board.isGenerated() ? Double.NaN : interior, -1, 0, 0);
+        }
+
+        // Numbers with hidden neighbours, joined when they share one
+        HashMap<Integer, Integer> parent = new HashMap<>();
+        ArrayList<long[]> numbers = new ArrayList<>();
+        for (int r = 0; r < totRows; r++) {
+            for (int c = 0; c < totCols; c++) {
+                if (!board.isShown(r, c) || board.getTotNearMines(r, c) == 0)
+                    continue;
+
+                long[] number = new long[10];
+                int n = 2;
+                for (int i = Math.max(r - 1, 0); i <= Math.min(r + 1, totRows - 1); i++) {
+                    for (int j = Math.max(c - 1, 0); j <= Math.min(c + 1, totCols - 1); j++) {
+                        if (!board.isShown(i, j))
+                            number[n++] = board.Index(i, j);
+                    }
+                }
+                if (n == 2)
+                    continue;
+
+                number[0] = board.Index(r, c);
+                number[1] = board.getTotNearMines(r, c);
+                numbers.add(Arrays.copyOf(number, n));
+                for (int k = 2; k < n; k++) {
+                    parent.putIfAbsent((int) number[k], (int) number[k]);
+                    Union(parent, (int) number[2], (int) number[k]);
+                }
+            }
+        }
+
+        // Numbers in board order inside each component, which keeps the signature stable
+        HashMap<Integer, ArrayList<long[]>> groups = new HashMap<>();
+        for (long[] number : numbers)
+            groups.computeIfAbsent(Find(parent, (int) number[2]), key -> new ArrayList<>()).add(number);
+
+        ArrayList<Signature> signatures = new ArrayList<>();
+        for (ArrayList<long[]> group : groups.values()) {
+            int length = 0;
+            for (long[] number : group)
+                length += number.length + 1;
+            long[] packed = new long[length];
+            int at = 0;
+            for (long[] number : group) {
+                packed[at++] = number.length;
+                System.arraycopy(number, 0, packed, at, number.length);
+                at += number.length;
+            }
+            signatures.add(new Signature(packed));
+        }
+
+        // Components seen last time are reused, the others are solved in parallel
+        HashMap<Signature, Counts> kept = new HashMap<>();
+        ArrayList<CompletableFuture<Counts>> solving = new ArrayList<>();
+        int cached = 0;
+        for (Signature signature : signatures) {
+            Counts counts = cache.get(signature);
+            if (counts != null) {
+                kept.put(signature, counts);
+                cached++;
+                solving.add(CompletableFuture.completedFuture(counts));
+            }
+            else {
+                solving.add(CompletableFuture.supplyAsync(() -> new Component(signature.numbers()).Solve(), EXECUTOR));
+            }
+        }
+        Counts[] components = new Counts[signatures.size()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = solving.get(i).join();
+            kept.put(signatures.get(i), components[i]);
+        }
+        cache = kept;
+
+        return Combine(components, cached);
+    }
+
+
+    // Weights every total of frontier mines by the ways to place the rest among the interior cells
+    private Result Combine(Counts[] components, int cached) {
+        int frontierCells = 0;
+        for (Counts counts : components)
+            frontierCells += counts.cells().length;
+        long interior = (long) board.getTotCells() - board.getTotCellShown() - frontierCells;
+        int totMines = board.getTotMines();
+
+        // Polynomials by number of mines, exact components only: prefix and suffix products
+        int n = components.length;
+        double[][] prefix = new double[n + 1][], suffix = new double[n + 1][];
+        prefix[0] = new double[] { 1.0 };
+        for (int i = 0; i < n; i++)
+            prefix[i + 1] = Multiply(prefix[i], Polynomial(components[i]));
+        suffix[n] = new double[] { 1.0 };
+        for (int i = n - 1; i >= 0; i--)
+            suffix[i] = Multiply(Polynomial(components[i]), suffix[i + 1]);
+
+        // weight[K]: ways to put the remaining totMines - K mines in the interior, relative to the largest
+        double[] total = prefix[n];
+        double[] weight = new double[total.length];
+        double[] log = new double[total.length];
+        // Only ratios matter, so the logs start from 0 at the first valid term and follow from each
+        // other with C(n, r) = C(n, r + 1) * (r + 1) / (n - r), one step per k
+        double maxLog = Double.NEGATIVE_INFINITY, running = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < total.length; k++) {
+            long rest = totMines - k;
+            if (rest < 0 || rest > interior) {
+                log[k] = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            running = (running == Double.NEGATIVE_INFINITY) ? 0.0 : running + Math.log(rest + 1) - Math.log(interior - rest);
+            log[k] = running;
+            maxLog = Math.max(maxLog, log[k]);
+        }
+        double all = 0.0, interiorMines = 0.0;
+        for (int k = 0; k < total.length; k++) {
+            weight[k] = (log[k] == Double.NEGATIVE_INFINITY) ? 0.0 : Math.exp(log[k] - maxLog);
+            all += total[k] * weight[k];
+            interiorMines += total[k] * weight[k] * (totMines - k);
+        }
+
+        HashMap<Integer, Double> frontier = new HashMap<>();
+        int best = -1;
+        double bestProbability = 2.0;
+        for (int i = 0; i < n; i++) {
+            Counts counts = components[i];
+            int[] cells = counts.cells();
+            if (counts.solutions() == null || all <= 0.0) {
+                for (int c = 0; c < cells.length; c++)
+                    frontier.put(cells[c], counts.estimate()[c]);
+            }
+            else {
+                // Ways for the other components and the interior, given k mines in this one
+                double[] others = Multiply(prefix[i], suffix[i + 1]);
+                double[] given = new double[counts.solutions().length];
+                for (int k = 0; k < given.length; k++) {
+                    for (int t = 0; t < others.length && k + t < weight.length; t++)
+                        given[k] += others[t] * weight[k + t];
+                }
+                for (int c = 0; c < cells.length; c++) {
+                    double mine = 0.0;
+                    for (int k = 0; k < given.length; k++)
+                        mine += counts.mines()[c][k] * given[k];
+                    frontier.put(cells[c], Math.max(0.0, Math.min(1.0, mine / all)));
+                }
+            }
+            for (int cell : cells) {
+                double probability = frontier.get(cell);
+                if (probability < bestProbability) {
+                    bestProbability = probability;
+                    best = cell;
+                }
+            }
+        }
+
+        double interiorProbability = (interior > 0 && all > 0.0) ? Math.max(0.0, Math.min(1.0, interiorMines / all / interior)) : Double.NaN;
+        return new Result(frontier, interiorProbability, best, n, cached);
+    }
+
+    private static double[] Polynomial(Counts counts) {
+        return (counts.solutions() != null) ? counts.solutions() : new double[] { 1.0 };
+    }
+    private static double[] Multiply(double[] a, double[] b) {
+        double[] product = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0.0)
+                continue;
+            for (int j = 0; j < b.length; j++)
+                product[i + j] += a[i] * b[j];
+        }
+        return product;
+    }
+
+    private static int Find(HashMap<Integer, Integer> parent, int i) {
+        int root = i;
+        while (parent.get(root) != root)
+            root = parent.get(root);
+        while (parent.get(i) != root) {
+            int next = parent.get(i);
+            parent.put(i, root);
+            i = next;
+        }
+        return root;
+    }
+    private static void Union(HashMap<Integer, Integer> parent, int a, int b) {
+        int ra = Find(parent, a), rb = Find(parent, b);
+        if (ra != rb)
+            parent.put(ra, rb);
+    }
+
+
+    // Counts the assignments of a component cell by cell, in an order where numbers close quickly.
+    // The ways to finish from a cell only depend on the remaining mines of the numbers that are
+    // partially assigned there, so the cells are swept once forward and once backward over those
+    // states, memoizing the ways to reach and to finish from each of them by number of mines
+    private static class Component {
+        // Open numbers that fit in a state key, 4 bits each
+        private static final int MAX_OPEN = 16;
+
+        private final int[] cells;
+        private final int[] values;
+        private final int[] first;
+        private final int[][] cellNumbers;
+        // Cells of each of the numbers above still to assign after the cell
+        private final int[][] after;
+        private final int[][] open;
+        private final int[] remaining;
+        private final double[] estimate;
+
+
+        Component(long[] packed) {
+            // Numbers and their cells with a local id per cell
+            HashMap<Integer, Integer> ids = new HashMap<>();
+            ArrayList<int[]> members = new ArrayList<>();
+            ArrayList<Integer> numberValues = new ArrayList<>();
+            ArrayList<Integer> order = new ArrayList<>();
+            for (int at = 0; at < packed.length; at += (int) packed[at] + 1) {
+                int length = (int) packed[at];
+                int[] around = new int[length - 2];
+                for (int k = 2; k < length; k++) {
+                    int cell = (int) packed[at + 1 + k];
+                    Integer id = ids.get(cell);
+                    if (id == null) {
+                        id = order.size();
+                        ids.put(cell, id);
+                        order.add(cell);
+                    }
+                    around[k - 2] = id;
+                }
+                members.add(around);
+                numberValues.add((int) packed[at + 2]);
+            }
+
+            // Cells are numbered in order of discovery through the numbers, in board order,
+            // so a number's cells sit close together
+            int m = order.size(), k = members.size();
+            cells = new int[m];
+            for (int i = 0; i < m; i++)
+                cells[i] = order.get(i);
+            values = new int[k];
+            first  = new int[k];
+            int[] last = new int[k];
+            int[] degree = new int[m];
+            for (int j = 0; j < k; j++) {
+                values[j] = numberValues.get(j);
+                first[j] = Integer.MAX_VALUE;
+                for (int id : members.get(j)) {
+                    degree[id]++;
+                    first[j] = Math.min(first[j], id);
+                    last[j]  = Math.max(last[j], id);
+                }
+            }
+            cellNumbers = new int[m][];
+            after = new int[m][];
+            for (int i = 0; i < m; i++) {
+                cellNumbers[i] = new int[degree[i]];
+                after[i] = new int[degree[i]];
+            }
+            Arrays.fill(degree, 0);
+            for (int j = 0; j < k; j++) {
+                for (int id : members.get(j)) {
+                    int later = 0;
+                    for (int other : members.get(j)) {
+                        if (other > id)
+                            later++;
+                    }
+                    after[id][degree[id]] = later;
+                    cellNumbers[id][degree[id]++] = j;
+                }
+            }
+
+            // Numbers with cells on both sides of position p
+            open = new int[m + 1][];
+            for (int p = 0; p <= m; p++) {
+                int[] numbers = new int[k];
+                int n = 0;
+                for (int j = 0; j < k; j++) {
+                    if (first[j] < p && last[j] >= p)
+                        numbers[n++] = j;
+                }
+                open[p] = Arrays.copyOf(numbers, n);
+            }
+            remaining = new int[k];
+
+            // Local guess for when the component is too wide: the highest density among its numbers
+            estimate = new double[m];
+            for (int j = 0; j < k; j++) {
+                for (int id : members.get(j))
+                    estimate[id] = Math.max(estimate[id], (double) values[j] / members.get(j).length);
+            }
+        }
+
+        Counts Solve() {
+            int m = cells.length;
+            for (int[] numbers : open) {
+                if (numbers.length > MAX_OPEN)
+                    return new Counts(cells, null, null, estimate);
+            }
+
+            // Forward: ways to reach each state before cell p, by mines among cells 0..p-1
+            ArrayList<HashMap<Long, double[]>> forward = new ArrayList<>(m + 1);
+            HashMap<Long, double[]> layer = new HashMap<>();
+            layer.put(0L, new double[] { 1.0 });
+            forward.add(layer);
+            long states = 0;
+            for (int p = 0; p < m; p++) {
+                HashMap<Long, double[]> next = new HashMap<>();
+                for (var entry : layer.entrySet()) {
+                    double[] ways = entry.getValue();
+                    for (int value = 0; value <= 1; value++) {
+                        long key = Step(p, entry.getKey(), value);
+                        if (key < 0)
+                            continue;
+                        double[] reached = next.computeIfAbsent(key, any -> new double[ways.length + 1]);
+                        for (int t = 0; t < ways.length; t++)
+                            reached[t + value] += ways[t];
+                    }
+                }
+                states += next.size();
+                if (states > MAX_STATES)
+                    return new Counts(cells, null, null, estimate);
+                forward.add(next);
+                layer = next;
+            }
+            double[] solutions = layer.get(0L);
+            if (solutions == null)
+                return new Counts(cells, null, null, estimate);
+
+            // Backward: ways to finish from each state, and the ways where cell p is a mine by total mines
+            double[][] mines = new double[m][m + 1];
+            HashMap<Long, double[]> finish = new HashMap<>();
+            finish.put(0L, new double[] { 1.0 });
+            for (int p = m - 1; p >= 0; p--) {
+                HashMap<Long, double[]> previous = new HashMap<>();
+                for (var entry : forward.get(p).entrySet()) {
+                    double[] result = null;
+                    for (int value = 0; value <= 1; value++) {
+                        double[] rest = finish.get(Step(p, entry.getKey(), value));
+                        if (rest == null)
+                            continue;
+                        if (result == null)
+                            result = new double[m - p + 1];
+                        for (int t = 0; t < rest.length; t++)
+                            result[t + value] += rest[t];
+                        if (value == 1) {
+                            double[] ways = entry.getValue();
+                            for (int s = 0; s < ways.length; s++) {
+                                if (ways[s] == 0.0)
+                                    continue;
+                                for (int t = 0; t < rest.length; t++)
+                                    mines[p][s + t + 1] += ways[s] * rest[t];
+                            }
+                        }
+                    }
+                    if (result != null)
+                        previous.put(entry.getKey(), result);
+                }
+                finish = previous;
+            }
+
+            // Scaled down, only ratios matter and large components would overflow the products
+            double max = 0.0;
+            for (double s : solutions)
+                max = Math.max(max, s);
+            for (int t = 0; t <= m; t++) {
+                solutions[t] /= max;
+                for (int i = 0; i < m; i++)
+                    mines[i][t] /= max;
+            }
+            return new Counts(cells, solutions, mines, estimate);
+        }
+
+        // State before cell p + 1 after giving 'value' to cell p in 'key', -1 if a number breaks
+        private long Step(int p, long key, int value) {
+            if (key < 0)
+                return -1;
+            // Unpacks the open numbers, the ones starting at p hold their value
+            for (int i = open[p].length - 1; i >= 0; i--) {
+                remaining[open[p][i]] = (int) (key & 0xF);
+                key >>>= 4;
+            }
+            for (int i = 0; i < cellNumbers[p].length; i++) {
+                int j = cellNumbers[p][i];
+                if (first[j] == p)
+                    remaining[j] = values[j];
+                remaining[j] -= value;
+                if (remaining[j] < 0 || remaining[j] > after[p][i])
+                    return -1;
+            }
+
+            long next = 0;
+            for (int j : open[p + 1])
+                next = (next << 4) | remaining[j];
+            return next;
+        }
+    }
+}
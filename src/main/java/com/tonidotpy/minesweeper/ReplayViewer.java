@@ -0,0 +1,87 @@
+package com.tonidotpy.minesweeper;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+// Small window moving the game through the positions of its journal. It follows the board of the
+// journal, so moves made or undone in the game show up here, and it is moved to the journal of
+// every new game
+public class ReplayViewer extends Stage {
+    private Journal journal;
+    private final Runnable onSeek;
+    private final Slider slider;
+    private final Label label;
+    private final JournalFollower follower;
+
+
+    public ReplayViewer(Window owner, Journal journal, Runnable onSeek) {
+        super();
+
+        this.onSeek  = onSeek;
+        this.follower = new JournalFollower(this::Refresh);
+
+        slider = new Slider(0, 0, 0);
+        slider.setBlockIncrement(1);
+        slider.setMajorTickUnit(1);
+        slider.setMinorTickCount(0);
+        slider.setSnapToTicks(true);
+        slider.valueProperty().addListener((observable, oldValue, newValue) -> Seek((int) Math.round(newValue.doubleValue())));
+        HBox.setHgrow(slider, Priority.ALWAYS);
+
+        label = new Label();
+        label.setMinWidth(110);
+
+        Button first    = new Button("|<");
+        Button previous = new Button("<");
+        Button next     = new Button(">");
+        Button last     = new Button(">|");
+        first.setOnAction(e -> slider.setValue(0));
+        previous.setOnAction(e -> slider.setValue(this.journal.getPosition() - 1));
+        next.setOnAction(e -> slider.setValue(this.journal.getPosition() + 1));
+        last.setOnAction(e -> slider.setValue(this.journal.getTotMoves()));
+
+        HBox box = new HBox(6, first, previous, slider, next, last, label);
+        box.setAlignment(Pos.CENTER);
+        box.setPadding(new Insets(8));
+
+        this.initOwner(owner);
+        this.setTitle("Replay");
+        this.setScene(new Scene(box, 520, 50));
+        this.setOnHidden(e -> setJournal(null));
+        setJournal(journal);
+    }
+
+    // Follows another journal, null to stop following any
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+        follower.Follow(journal);
+        Refresh();
+    }
+
+
+    private void Seek(int position) {
+        if (journal == null || position == journal.getPosition())
+            return;
+
+        journal.Seek(position);
+        onSeek.run();
+        Refresh();
+    }
+    // The slider ends at the last move recorded, which grows as the game goes on
+    private void Refresh() {
+        if (journal == null)
+            return;
+
+        slider.setMax(journal.getTotMoves());
+        slider.setValue(journal.getPosition());
+        label.setText("Move " + journal.getPosition() + " / " + journal.getTotMoves());
+    }
+}
@@ -0,0 +1,270 @@
+package com.tonidotpy.minesweeper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Command line mode hosting many games over a line based protocol on a local socket:
+//   --serve [--port P] [--max-sessions N]
+// Every connection has its own thread, a virtual one when the runtime has them. Requests:
+//   NEW rows cols mines [seed]  -> OK id                         creates a session and uses it
+//   USE id                      -> OK id                         switches to another session of this connection
+//   CLICK row col               -> OK NONE|WIN|LOSE shown left    primary click, as in the grid
+//   TOGGLE row col              -> OK EMPTY|FLAG|QUESTION_MARK|SHOWN
+//   SHOW                        -> OK rows cols, then one line per row (# ? F 0-8 * X)
+//   CLOSE                       -> OK                            drops the session in use
+//   QUIT                        -> OK                            closes the connection
+// Errors are answered with ERR and a message, the connection stays open.
+// A session belongs to the connection that created it: the others cannot use or close it, they are
+// told it does not exist. The sessions of a connection are dropped with it, however it ends
+public class Server {
+    public static final int DEFAULT_PORT = 7878;
+
+    // A game and its lock: sessions never share state, so one session never waits for another.
+    // A ReentrantLock rather than synchronized, which would pin a virtual thread to its carrier
+    private static class Session {
+        final long id;
+        final Board board;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Session(long id, Board board) {
+            this.id    = id;
+            this.board = board;
+        }
+    }
+
+
+    private final int port;
+    private final int maxSessions;
+    private final ConcurrentHashMap<Long, Session> sessions;
+    private final AtomicLong nextId;
+    private final AtomicInteger connections;
+
+
+    public int getPort() { return port; }
+    public int getTotSessions() { return sessions.size(); }
+    public int getTotConnections() { return connections.get(); }
+
+
+    public Server(int port, int maxSessions) {
+        this.port        = port;
+        this.maxSessions = maxSessions;
+        this.sessions    = new ConcurrentHashMap<>();
+        this.nextId      = new AtomicLong();
+        this.connections = new AtomicInteger();
+    }
+
+
+    public static void Main(String[] args) {
+        int port = DEFAULT_PORT, maxSessions = 100_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--serve"        -> {}
+                case "--port"         -> port        = Integer.parseInt(args[++i]);
+                case "--max-sessions" -> maxSessions = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        try {
+            new Server(port, maxSessions).Run();
+        }
+        catch (IOException e) {
+            System.err.println("Server stopped: " + e.getMessage());
+        }
+    }
+
+    public void Run() throws IOException {
+        ExecutorService executor = NewThreadPerTaskExecutor("session");
+        try (ServerSocket socket = new ServerSocket(port, 512, InetAddress.getLoopbackAddress())) {
+            System.out.printf("Serving on %s:%d%n", socket.getInetAddress().getHostAddress(), socket.getLocalPort());
+            while (!socket.isClosed()) {
+                Socket client = socket.accept();
+                executor.execute(() -> Serve(client));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // One virtual thread per task from Java 21 on, found by reflection so that the game still builds
+    // and runs on 17, where a cached pool of daemon threads takes its place
+    static ExecutorService NewThreadPerTaskExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+
+    private void Serve(Socket client) {
+        connections.incrementAndGet();
+        // Created by this connection and only used by it, the sessions it has closed are removed from it
+        HashSet<Long> owned = new HashSet<>();
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII))) {
+            client.setTcpNoDelay(true);
+
+            Session session = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] words = line.trim().split("\\s+");
+                try {
+                    switch (words[0].toUpperCase()) {
+                        case "NEW" -> {
+                            long id = New(words);
+                            owned.add(id);
+                            session = sessions.get(id);
+                            out.write("OK " + id + "\n");
+                        }
+                        case "USE" -> {
+                            long id = Long.parseLong(Argument(words, 1));
+                            if (!owned.contains(id))
+                                throw new IllegalArgumentException("No session " + id);
+                            session = sessions.get(id);
+                            out.write("OK " + id + "\n");
+                        }
+                        case "CLICK"  -> out.write(Click(Current(session), words));
+                        case "TOGGLE" -> out.write(Toggle(Current(session), words));
+                        case "SHOW"   -> out.write(Show(Current(session)));
+                        case "CLOSE"  -> {
+                            long id = Current(session).id;
+                            sessions.remove(id);
+                            owned.remove(id);
+                            session = null;
+                            out.write("OK\n");
+                        }
+                        case "QUIT" -> {
+                            out.write("OK\n");
+                            out.flush();
+                            return;
+                        }
+                        default -> throw new IllegalArgumentException("Unknown request " + words[0]);
+                    }
+                }
+                catch (IllegalArgumentException | IllegalStateException e) {
+                    out.write("ERR " + e.getMessage() + "\n");
+                }
+                // Answers are only flushed once the client has no more pipelined requests
+                if (!in.ready())
+                    out.flush();
+            }
+        }
+        catch (IOException e) {
+            // The client went away, its sessions go with it below
+        }
+        finally {
+            for (long id : owned)
+                sessions.remove(id);
+            connections.decrementAndGet();
+        }
+    }
+
+    private long New(String[] words) {
+        int rows  = Integer.parseInt(Argument(words, 1));
+        int cols  = Integer.parseInt(Argument(words, 2));
+        int mines = Integer.parseInt(Argument(words, 3));
+        long seed = (words.length > 4) ? Long.parseLong(words[4]) : Board.NewSeed();
+        if (rows < 3 || cols < 3 || (long) rows * cols > 1_000_000)
+            throw new IllegalArgumentException("Board size out of range");
+        if (sessions.size() >= maxSessions)
+            throw new IllegalStateException("Too many sessions");
+
+        long id = nextId.incrementAndGet();
+        sessions.put(id, new Session(id, new Board(rows, cols, mines, seed)));
+        return id;
+    }
+
+    private static String Click(Session session, String[] words) {
+        session.lock.lock();
+        try {
+            Board board = session.board;
+            int index = CellIndex(board, words);
+            int row = index / board.getTotCols(), col = index % board.getTotCols();
+            Board.Result result = (board.isLost() || board.isWon()) ? Board.Result.NONE : board.Click(row, col);
+            if (result == Board.Result.LOSE)
+                board.ShowMines();
+            return "OK " + result + " " + board.getTotCellShown() + " " + board.getTotSafeRemaining() + "\n";
+        }
+        finally {
+            session.lock.unlock();
+        }
+    }
+    private static String Toggle(Session session, String[] words) {
+        session.lock.lock();
+        try {
+            Board board = session.board;
+            int index = CellIndex(board, words);
+            int row = index / board.getTotCols(), col = index % board.getTotCols();
+            if (!board.isLost() && !board.isWon())
+                board.ToggleState(row, col);
+            return "OK " + board.getState(row, col) + "\n";
+        }
+        finally {
+            session.lock.unlock();
+        }
+    }
+    private static String Show(Session session) {
+        session.lock.lock();
+        try {
+            Board board = session.board;
+            StringBuilder text = new StringBuilder(board.getTotCells() + board.getTotRows() + 16);
+            text.append("OK ").append(board.getTotRows()).append(' ').append(board.getTotCols()).append('\n');
+            for (int r = 0; r < board.getTotRows(); r++) {
+                for (int c = 0; c < board.getTotCols(); c++) {
+                    text.append(switch (board.getState(r, c)) {
+                        case EMPTY         -> '#';
+                        case FLAG          -> 'F';
+                        case QUESTION_MARK -> '?';
+                        case SHOWN         -> board.isExploded(r, c) ? 'X' : board.isMine(r, c) ? '*' : (char) ('0' + board.getTotNearMines(r, c));
+                    });
+                }
+                text.append('\n');
+            }
+            return text.toString();
+        }
+        finally {
+            session.lock.unlock();
+        }
+    }
+
+    private static Session Current(Session session) {
+        if (session == null)
+            throw new IllegalStateException("No session, send NEW or USE first");
+        return session;
+    }
+    private static String Argument(String[] words, int i) {
+        if (i >= words.length)
+            throw new IllegalArgumentException("Missing argument " + i + " of " + words[0]);
+        return words[i];
+    }
+    private static int CellIndex(Board board, String[] words) {
+        int row = Integer.parseInt(Argument(words, 1)), col = Integer.parseInt(Argument(words, 2));
+        if (!board.IsInBounds(row, col))
+            throw new IllegalArgumentException("Cell out of the board");
+        return board.Index(row, col);
+    }
+}
@@ -0,0 +1,165 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Command line mode playing many games with the Bot on every core:
+//   --simulate [--games N] [--rows R] [--cols C] [--mines M] [--threads T] [--seed S]
+public class Simulator {
+    // Games played by a leaf task before it stops splitting
+    private static final int GAMES_PER_TASK = 64;
+
+    // State owned by a single worker thread: its board is reused for every game it plays
+    private static class Worker {
+        final Board board;
+        final LatencyHistogram latency = new LatencyHistogram();
+        long wins, games;
+
+        Worker(int rows, int cols, int mines) { board = new Board(rows, cols, mines); }
+    }
+
+
+    private final int rows, cols, mines;
+    private final long seed;
+    private final ConcurrentLinkedQueue<Worker> workers;
+    private final ThreadLocal<Worker> worker;
+
+
+    public Simulator(int rows, int cols, int mines, long seed) {
+        this.rows  = rows;
+        this.cols  = cols;
+        this.mines = mines;
+        this.seed  = seed;
+
+        workers = new ConcurrentLinkedQueue<>();
+        worker  = ThreadLocal.withInitial(() -> {
+            Worker w = new Worker(rows, cols, mines);
+            workers.add(w);
+            return w;
+        });
+    }
+
+
+    public static void Main(String[] args) {
+        long games = 100_000, seed = Board.NewSeed();
+        int rows = 16, cols = 30, mines = 99, threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--simulate" -> {}
+                case "--games"   -> games   = Long.parseLong(args[++i]);
+                case "--rows"    -> rows    = Integer.parseInt(args[++i]);
+                case "--cols"    -> cols    = Integer.parseInt(args[++i]);
+                case "--mines"   -> mines   = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--seed"    -> seed    = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        System.out.printf("Simulating %d games on %dx%d with %d mines, %d threads, seed %d%n", games, rows, cols, mines, threads, seed);
+        Report report = new Simulator(rows, cols, mines, seed).Run(games, threads);
+        System.out.print(report);
+    }
+
+
+    public Report Run(long games, int threads) {
+        workers.clear();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new Games(0, games));
+        }
+        finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new Report(List.copyOf(workers), elapsed);
+    }
+
+    private void Play(long game) {
+        Worker w = worker.get();
+        // Every game gets its own seed, so the results do not depend on how games are split between threads
+        long gameSeed = Mix(seed + game);
+        w.board.Reset(gameSeed);
+
+        Bot bot = new Bot(w.board, gameSeed);
+        bot.setClick((board, row, col) -> {
+            long t = System.nanoTime();
+            Board.Result result = board.Click(row, col);
+            w.latency.Record(System.nanoTime() - t);
+            return result;
+        });
+
+        if (bot.Play() == Board.Result.WIN)
+            w.wins++;
+        w.games++;
+    }
+
+    private static long Mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+    private class Games extends RecursiveAction {
+        private final long from, to;
+
+        Games(long from, long to) {
+            this.from = from;
+            this.to   = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                for (long game = from; game < to; game++)
+                    Play(game);
+                return;
+            }
+            long middle = (from + to) >>> 1;
+            invokeAll(new Games(from, middle), new Games(middle, to));
+        }
+    }
+
+
+    public static class Report {
+        private final long games, wins;
+        private final long elapsed;
+        private final LatencyHistogram latency;
+
+        public long getGames() { return games; }
+        public long getWins()  { return wins; }
+        public double getWinRate() { return games == 0 ? 0.0 : (double) wins / games; }
+        public double getGamesPerSecond() { return games / (elapsed / 1e9); }
+        public LatencyHistogram getLatency() { return latency; }
+
+        Report(List<Worker> workers, long elapsed) {
+            long games = 0, wins = 0;
+            latency = new LatencyHistogram();
+            for (Worker w : workers) {
+                games += w.games;
+                wins  += w.wins;
+                latency.Add(w.latency);
+            }
+            this.games   = games;
+            this.wins    = wins;
+            this.elapsed = elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Games      %d%n", games)
+                 + String.format("Win rate   %.2f%%%n", getWinRate() * 100.0)
+                 + String.format("Elapsed    %.3f s%n", elapsed / 1e9)
+                 + String.format("Games/sec  %.0f%n", getGamesPerSecond())
+                 + String.format("Reveals    %d%n", latency.getCount())
+                 + String.format("Reveal latency (us) p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                        latency.getPercentile(50) / 1e3, latency.getPercentile(90) / 1e3,
+                        latency.getPercentile(99) / 1e3, latency.getPercentile(99.9) / 1e3, latency.getMax() / 1e3);
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package com.tonidotpy.minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Deduces safe cells and mines from the numbers shown on a Board. Constraints are kept up to date
+// incrementally: after a move only the numbers around the newly shown cells are looked at again.
+// Single cell and subset deductions come first, the frontier is enumerated only when they are stuck.
+// Flags set by the player are not trusted, only the solver's own deductions are used
+public class Solver implements Board.Listener {
+    public static class Hint {
+        private final int[] safe, mines;
+        private final int[] frontier;
+        private final double[] probabilities;
+        private final double interiorProbability;
+        private final int guess;
+
+        // Cells (as board indices) that are certainly safe or certainly mines
+        public int[] getSafe()  { return safe; }
+        public int[] getMines() { return mines; }
+        // Mine probability of the hidden cells next to a number, empty when safe cells are known
+        public int[] getFrontier() { return frontier; }
+        public double[] getProbabilities() { return probabilities; }
+        // Mine probability of any hidden cell which is not next to a number
+        public double getInteriorProbability() { return interiorProbability; }
+        // Best cell to click: a safe cell if there is one, otherwise the least likely mine (-1 if none)
+        public int getGuess() { return guess; }
+        public boolean isSafe() { return safe.length > 0; }
+
+        Hint(int[] safe, int[] mines, int[] frontier, double[] probabilities, double interiorProbability, int guess) {
+            this.safe  = safe;
+            this.mines = mines;
+            this.frontier      = frontier;
+            this.probabilities = probabilities;
+            this.interiorProbability = interiorProbability;
+            this.guess = guess;
+        }
+    }
+
+
+    // Per cell marks
+    private static final byte SAFE   = 1;
+    private static final byte MINE   = 2;
+    private static final byte QUEUED = 4;
+    private static final byte ACTIVE = 8;
+
+    // Limits of the frontier enumeration, which keep a hint within a frame
+    private static final int  MAX_COMPONENT_CELLS = 48;
+    private static final long MAX_NODES = 200_000;
+
+    private static final int WINDOW = 7;
+
+
+    private final Board board;
+    private final int totRows, totCols;
+    private final byte[] marks;
+
+    // Numbers whose constraint has to be evaluated again
+    private int[] queue;
+    private int totQueued;
+    // Numbers that still have unknown neighbours, entries are dropped lazily once inactive
+    private int[] active;
+    private int totActive;
+    // Deductions in the order they were found, cells already shown are dropped lazily
+    private int[] safeCells, mineCells;
+    private int totSafe, totMines;
+
+    private long nodes;
+
+
+    public Board getBoard() { return board; }
+    public boolean isSafe(int r, int c) { return (marks[board.Index(r, c)] & SAFE) != 0; }
+    public boolean isMine(int r, int c) { return (marks[board.Index(r, c)] & MINE) != 0; }
+
+
+    public Solver(Board board) {
+        this.board   = board;
+        this.totRows = board.getTotRows();
+        this.totCols = board.getTotCols();
+
+        marks     = new byte[board.getTotCells()];
+        queue     = new int[64];
+        active    = new int[64];
+        safeCells = new int[16];
+        mineCells = new int[16];
+
+        Scan();
+        board.AddListener(this);
+    }
+
+    // Stops following the board
+    public void Detach() {
+        board.RemoveListener(this);
+    }
+
+
+
+    @Override
+    public void CellChanged(int row, int col) {
+        int index = board.Index(row, col);
+        if (!board.isShown(row, col) || board.isMine(row, col))
+            return;
+
+        // The shown cell is a new constraint and the numbers around it have one unknown less
+        Enqueue(index);
+        EnqueueAround(row, col);
+    }
+
+    @Override
+    public void BoardReset() {
+        Arrays.fill(marks, (byte) 0);
+        totQueued = totActive = totSafe = totMines = 0;
+        if (board.isGenerated())
+            Scan();
+    }
+
+    private void Scan() {
+        for (int r = 0; r < totRows; r++) {
+            for (int c = 0; c < totCols; c++) {
+                if (board.isShown(r, c) && !board.isMine(r, c))
+                    Enqueue(board.Index(r, c));
+            }
+        }
+    }
+
+
+    public Hint getHint() {
+        Deduce();
+        if (HasSafe()) {
+            int[] safe = PendingSafe();
+            return new Hint(safe, PendingMines(), new int[0], new double[0], Double.NaN, safe[0]);
+        }
+        return Probabilities();
+    }
+
+    // Mine probability of every frontier cell, enumerating the frontier even if safe cells are known
+    public Hint Probabilities() {
+        Deduce();
+
+        HashMap<Integer, Double> probabilities = new HashMap<>();
+        Enumerate(probabilities);
+        Deduce();
+
+        int[] frontier = new int[probabilities.size()];
+        double[] values = new double[probabilities.size()];
+        int i = 0, guess = -1;
+        double expected = 0.0, best = 2.0;
+        for (var entry : probabilities.entrySet()) {
+            frontier[i] = entry.getKey();
+            values[i]   = entry.getValue();
+            expected   += values[i];
+            if (values[i] < best) {
+                best  = values[i];
+                guess = frontier[i];
+            }
+            i++;
+        }
+
+        int[] safe = PendingSafe(), mines = PendingMines();
+        if (safe.length > 0)
+            guess = safe[0];
+
+        // Hidden cells which are neither deduced nor next to a number share the remaining mines
+        long interior = (long) board.getTotCells() - board.getTotCellShown() - safe.length - mines.length - frontier.length;
+        double interiorProbability = Double.NaN;
+        if (interior > 0) {
+            double remaining = board.getTotMines() - mines.length - expected;
+            interiorProbability = Math.max(0.0, Math.min(1.0, remaining / interior));
+            if (safe.length == 0 && interiorProbability < best) {
+                guess = FindInterior();
+            }
+        }
+        return new Hint(safe, mines, frontier, values, interiorProbability, guess);
+    }
+
+
+    // Single cell and subset deductions over the queued constraints, until nothing changes
+    private void Deduce() {
+        while (totQueued > 0) {
+            int index = queue[--totQueued];
+            marks[index] &= ~QUEUED;
+            Evaluate(index);
+        }
+    }
+
+    private void Evaluate(int index) {
+        int row = index / totCols, col = index % totCols;
+        long unknown = UnknownAround(row, col, row, col);
+        if (unknown == 0) {
+            marks[index] &= ~ACTIVE;
+            return;
+        }
+        Activate(index);
+
+        int mines = RemainingAround(row, col);
+        int count = Long.bitCount(unknown);
+        if (mines == 0) {
+            MarkWindow(row, col, unknown, SAFE);
+            return;
+        }
+        if (mines == count) {
+            MarkWindow(row, col, unknown, MINE);
+            return;
+        }
+
+        // Subset rule with the numbers up to two cells away: if the unknowns of one number are
+        // all neighbours of the other, the difference holds exactly the difference of their mines
+        for (int r = Math.max(row - 2, 0); r <= Math.min(row + 2, totRows - 1); r++) {
+            for (int c = Math.max(col - 2, 0); c <= Math.min(col + 2, totCols - 1); c++) {
+                if ((r == row && c == col) || !IsConstraint(r, c))
+                    continue;
+
+                long other = UnknownAround(r, c, row, col);
+                if (other == 0)
+                    continue;
+                int otherMines = RemainingAround(r, c);
+
+                if ((unknown & ~other) == 0 && Subset(row, col, other & ~unknown, otherMines - mines))
+                    return;
+                if ((other & ~unknown) == 0 && Subset(row, col, unknown & ~other, mines - otherMines))
+                    return;
+            }
+        }
+    }
+    private boolean Subset(int row, int col, long difference, int mines) {
+        if (difference == 0)
+            return false;
+        if (mines == 0) {
+            MarkWindow(row, col, difference, SAFE);
+            return true;
+        }
+        if (mines == Long.bitCount(difference)) {
+            MarkWindow(row, col, difference, MINE);
+            return true;
+        }
+        return false;
+    }
+
+    // Unknown neighbours of (row, col) as bits of the 7x7 window centred on (centerRow, centerCol)
+    private long UnknownAround(int row, int col, int centerRow, int centerCol) {
+        long bits = 0;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, totRows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, totCols - 1); c++) {
+                if (IsUnknown(r, c))
+                    bits |= 1L << ((r - centerRow + 3) * WINDOW + (c - centerCol + 3));
+            }
+        }
+        return bits;
+    }
+    // Mines around the number that have not been deduced yet
+    private int RemainingAround(int row, int col) {
+        int mines = board.getTotNearMines(row, col);
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, totRows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, totCols - 1); c++) {
+                if ((marks[board.Index(r, c)] & MINE) != 0)
+                    mines--;
+            }
+        }
+        return mines;
+    }
+    private void MarkWindow(int centerRow, int centerCol, long bits, byte mark) {
+        while (bits != 0) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            Mark(centerRow + bit / WINDOW - 3, centerCol + bit % WINDOW - 3, mark);
+        }
+    }
+
+    private void Mark(int row, int col, byte mark) {
+        int index = board.Index(row, col);
+        if ((marks[index] & (SAFE | MINE)) != 0)
+            return;
+
+        marks[index] |= mark;
+        if (mark == SAFE)
+            safeCells = Append(safeCells, totSafe++, index);
+        else
+            mineCells = Append(mineCells, totMines++, index);
+        EnqueueAround(row, col);
+    }
+
+
+    // Exact enumeration of every frontier component small enough, marking the cells that are safe
+    // or mines in all the solutions and filling the probabilities of the frontier cells
+    private void Enumerate(HashMap<Integer, Double> probabilities) {
+        // Active numbers and the unknown cells around them, with a local id per cell
+        ArrayList<Integer> constraints = new ArrayList<>();
+        HashMap<Integer, Integer> ids = new HashMap<>();
+        ArrayList<Integer> cells = new ArrayList<>();
+        int kept = 0;
+        for (int i = 0; i < totActive; i++) {
+            int index = active[i];
+            int row = index / totCols, col = index % totCols;
+            if ((marks[index] & ACTIVE) == 0 || UnknownAround(row, col, row, col) == 0) {
+                marks[index] &= ~ACTIVE;
+                continue;
+            }
+            active[kept++] = index;
+            constraints.add(index);
+
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, totRows - 1); r++) {
+                for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, totCols - 1); c++) {
+                    if (IsUnknown(r, c) && ids.putIfAbsent(board.Index(r, c), cells.size()) == null)
+                        cells.add(board.Index(r, c));
+                }
+            }
+        }
+        totActive = kept;
+        if (cells.isEmpty())
+            return;
+
+        // Components: cells sharing a number are joined
+        int[] parent = new int[cells.size()];
+        for (int i = 0; i < parent.length; i++)
+            parent[i] = i;
+        int[][] constraintCells = new int[constraints.size()][];
+        for (int k = 0; k < constraints.size(); k++) {
+            int index = constraints.get(k);
+            int row = index / totCols, col = index % totCols;
+            int[] around = new int[8];
+            int n = 0;
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, totRows - 1); r++) {
+                for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, totCols - 1); c++) {
+                    if (IsUnknown(r, c))
+                        around[n++] = ids.get(board.Index(r, c));
+                }
+            }
+            constraintCells[k] = Arrays.copyOf(around, n);
+            for (int i = 1; i < n; i++)
+                Union(parent, around[0], around[i]);
+        }
+
+        HashMap<Integer, Component> components = new HashMap<>();
+        for (int i = 0; i < parent.length; i++) {
+            components.computeIfAbsent(Find(parent, i), key -> new Component()).cells.add(i);
+        }
+        for (int k = 0; k < constraintCells.length; k++) {
+            int index = constraints.get(k);
+            components.get(Find(parent, constraintCells[k][0])).Add(constraintCells[k], RemainingAround(index / totCols, index % totCols));
+        }
+
+        nodes = 0;
+        for (Component component : components.values()) {
+            double[] result = (component.cells.size() <= MAX_COMPONENT_CELLS && nodes < MAX_NODES) ? component.Solve() : null;
+            for (int i = 0; i < component.cells.size(); i++) {
+                int cell = cells.get(component.cells.get(i));
+                double probability = (result != null) ? result[i] : component.Estimate(i);
+                if (result != null && probability == 0.0)
+                    Mark(cell / totCols, cell % totCols, SAFE);
+                else if (result != null && probability == 1.0)
+                    Mark(cell / totCols, cell % totCols, MINE);
+                probabilities.put(cell, probability);
+            }
+        }
+    }
+
+    // Frontier cells joined by shared numbers, solved by backtracking over their mine assignments
+    private class Component {
+        final ArrayList<Integer> cells = new ArrayList<>();
+        final ArrayList<int[]> constraints = new ArrayList<>();
+        final ArrayList<Integer> mines = new ArrayList<>();
+
+        private int[][] cellConstraints;
+        private int[] remaining, unassigned;
+        private boolean[] assignment;
+        private long solutions;
+        private long[] mineSolutions;
+
+        void Add(int[] globalCells, int mineCount) {
+            constraints.add(globalCells);
+            mines.add(mineCount);
+        }
+
+        // Probability of each cell to be a mine over all the solutions, null if the enumeration was cut
+        double[] Solve() {
+            int m = cells.size(), k = constraints.size();
+            HashMap<Integer, Integer> local = new HashMap<>();
+            for (int i = 0; i < m; i++)
+                local.put(cells.get(i), i);
+
+            int[] degree = new int[m];
+            int[][] members = new int[k][];
+            for (int j = 0; j < k; j++) {
+                int[] global = constraints.get(j);
+                members[j] = new int[global.length];
+                for (int i = 0; i < global.length; i++) {
+                    members[j][i] = local.get(global[i]);
+                    degree[members[j][i]]++;
+                }
+            }
+            cellConstraints = new int[m][];
+            for (int i = 0; i < m; i++)
+                cellConstraints[i] = new int[degree[i]];
+            Arrays.fill(degree, 0);
+            for (int j = 0; j < k; j++) {
+                for (int i : members[j])
+                    cellConstraints[i][degree[i]++] = j;
+            }
+
+            remaining  = new int[k];
+            unassigned = new int[k];
+            for (int j = 0; j < k; j++) {
+                remaining[j]  = mines.get(j);
+                unassigned[j] = members[j].length;
+            }
+            assignment    = new boolean[m];
+            mineSolutions = new long[m];
+            solutions     = 0;
+
+            if (!Backtrack(0) || solutions == 0)
+                return null;
+
+            double[] result = new double[m];
+            for (int i = 0; i < m; i++)
+                result[i] = (double) mineSolutions[i] / solutions;
+            return result;
+        }
+
+        private boolean Backtrack(int cell) {
+            if (++nodes > MAX_NODES)
+                return false;
+            if (cell == assignment.length) {
+                solutions++;
+                for (int i = 0; i < assignment.length; i++) {
+                    if (assignment[i])
+                        mineSolutions[i]++;
+                }
+                return true;
+            }
+
+            for (int value = 0; value <= 1; value++) {
+                boolean feasible = true;
+                for (int j : cellConstraints[cell]) {
+                    unassigned[j]--;
+                    remaining[j] -= value;
+                    if (remaining[j] < 0 || remaining[j] > unassigned[j])
+                        feasible = false;
+                }
+                assignment[cell] = value == 1;
+                boolean completed = !feasible || Backtrack(cell + 1);
+                for (int j : cellConstraints[cell]) {
+                    unassigned[j]++;
+                    remaining[j] += value;
+                }
+                if (!completed)
+                    return false;
+            }
+            assignment[cell] = false;
+            return true;
+        }
+
+        // Local estimate for cells of components too big to enumerate
+        double Estimate(int cell) {
+            int global = cells.get(cell);
+            double estimate = 0.0;
+            for (int j = 0; j < constraints.size(); j++) {
+                int[] members = constraints.get(j);
+                for (int member : members) {
+                    if (member == global)
+                        estimate = Math.max(estimate, (double) mines.get(j) / members.length);
+                }
+            }
+            return estimate;
+        }
+    }
+
+    private static int Find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+    private static void Union(int[] parent, int a, int b) {
+        parent[Find(parent, a)] = Find(parent, b);
+    }
+
+
+    private boolean IsUnknown(int r, int c) {
+        return !board.isShown(r, c) && (marks[board.Index(r, c)] & (SAFE | MINE)) == 0;
+    }
+    private boolean IsConstraint(int r, int c) {
+        return board.isShown(r, c) && !board.isMine(r, c) && board.getTotNearMines(r, c) > 0;
+    }
+
+    private void Enqueue(int index) {
+        if ((marks[index] & QUEUED) != 0 || board.getTotNearMines(index / totCols, index % totCols) == 0)
+            return;
+
+        marks[index] |= QUEUED;
+        queue = Append(queue, totQueued++, index);
+    }
+    private void EnqueueAround(int row, int col) {
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, totRows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, totCols - 1); c++) {
+                if (IsConstraint(r, c))
+                    Enqueue(board.Index(r, c));
+            }
+        }
+    }
+    private void Activate(int index) {
+        if ((marks[index] & ACTIVE) != 0)
+            return;
+
+        marks[index] |= ACTIVE;
+        active = Append(active, totActive++, index);
+    }
+
+    private boolean HasSafe() {
+        DropShownSafe();
+        return totSafe > 0;
+    }
+    private void DropShownSafe() {
+        int kept = 0;
+        for (int i = 0; i < totSafe; i++) {
+            int index = safeCells[i];
+            if (!board.isShown(index / totCols, index % totCols))
+                safeCells[kept++] = index;
+        }
+        totSafe = kept;
+    }
+    private int[] PendingSafe() {
+        DropShownSafe();
+        return Arrays.copyOf(safeCells, totSafe);
+    }
+    private int[] PendingMines() {
+        return Arrays.copyOf(mineCells, totMines);
+    }
+
+    private int FindInterior() {
+        for (int i = 0; i < marks.length; i++) {
+            int r = i / totCols, c = i % totCols;
+            if (marks[i] == 0 && !board.isShown(r, c) && !HasConstraintAround(r, c))
+                return i;
+        }
+        return -1;
+    }
+    private boolean HasConstraintAround(int row, int col) {
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, totRows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, totCols - 1); c++) {
+                if (IsConstraint(r, c))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] Append(int[] array, int size, int value) {
+        if (size == array.length)
+            array = Arrays.copyOf(array, array.length * 2);
+        array[size] = value;
+        return array;
+    }
+}
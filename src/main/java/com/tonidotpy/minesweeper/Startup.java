@@ -0,0 +1,65 @@
+package com.tonidotpy.minesweeper;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+
+// Timed phases of the launch: launch (toolkit and class init), images, game, grid and first pulse.
+// Every phase is committed as a StartupEvent for JFR and kept in memory until the report is printed
+public final class Startup {
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final long start;
+        private final StartupEvent event;
+
+        private Phase(String name) {
+            this.name  = name;
+            this.start = System.nanoTime();
+            this.event = new StartupEvent();
+            event.phase = name;
+            event.begin();
+        }
+
+        @Override
+        public void close() {
+            event.commit();
+            Record(name, start, System.nanoTime());
+        }
+    }
+
+    private record Entry(String name, long start, long end) {}
+
+
+    // Everything is measured from the first use of this class, which main does right away
+    private static final long origin = System.nanoTime();
+    private static final ArrayList<Entry> entries = new ArrayList<>();
+    private static boolean reported = false;
+
+
+    private Startup() {}
+
+    public static Phase Begin(String name) {
+        return new Phase(name);
+    }
+
+    private static synchronized void Record(String name, long start, long end) {
+        if (!reported)
+            entries.add(new Entry(name, start, end));
+    }
+
+    // Prints the phases recorded so far, after that they only go to JFR
+    public static synchronized void Report(PrintStream out) {
+        reported = true;
+
+        out.println("Startup phases (ms from main):");
+        ProcessHandle.current().info().startInstant().ifPresent(start ->
+                out.printf("  %-12s %9.1f%n", "JVM to main", Duration.between(start, Instant.now()).toNanos() / 1e6 - Millis(origin, System.nanoTime())));
+        for (Entry entry : entries) {
+            out.printf("  %-12s %9.1f  at %9.1f%n", entry.name(), Millis(entry.start(), entry.end()), Millis(origin, entry.start()));
+        }
+        entries.clear();
+    }
+
+    private static double Millis(long from, long to) { return (to - from) / 1e6; }
+}
@@ -0,0 +1,19 @@
+package com.tonidotpy.minesweeper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One timed phase of the launch, visible in any flight recording of the game
+@Name("com.tonidotpy.minesweeper.Startup")
+@Label("Startup Phase")
+@Category({"Minesweeper", "Startup"})
+@Description("A phase of the application startup, from launch to the first frame")
+@StackTrace(false)
+class StartupEvent extends Event {
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,354 @@
+package com.tonidotpy.minesweeper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Every finished game, kept in an append-only file of fixed size records mapped in memory.
+// The file is only read once, in the background, to build a small index by board size with the
+// best times and the streaks, which answers the queries without touching the file again.
+// Writes happen on a single background thread. Each record ends with a checksum written last,
+// so a crash can only leave a torn record at the end, which is dropped on the next load.
+// The file is locked by the instance that writes it, any other one only reads it and fails its records
+public class Statistics {
+    // One game, efficiency is the 3BV solved per click
+    public record Entry(long timestamp, long seed, int rows, int cols, int mines, int millis,
+                        int bbbv, int bbbvSolved, int clicks, boolean won, boolean noGuess) {
+        public Difficulty getDifficulty() { return Difficulty.Of(rows, cols, mines); }
+        public double getEfficiency() { return (clicks > 0) ? (double) bbbvSolved / clicks : 0.0; }
+    }
+    // Games played on a board size
+    public record Summary(int games, int wins, int streak, int bestStreak, List<Entry> best) {}
+
+    private record Size(int rows, int cols, int mines) {}
+
+    // File format, little endian: a header record with magic and version, then the games.
+    // Record layout: timestamp, seed, rows, cols, mines, millis, 3BV, 3BV solved, clicks,
+    // difficulty (-1 for custom), flags (bit 0 won, bit 1 no guessing), then the CRC32 of the bytes before it
+    private static final int MAGIC   = 0x534D5753; // "MSWS"
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 64;
+    private static final int CRC_OFFSET  = RECORD_SIZE - 4;
+    private static final int RECORDS_PER_SEGMENT = 1 << 14;
+    // Best times kept in the index for each board size
+    private static final int TOP = 10;
+
+
+    private final Path path;
+    private final ExecutorService writer;
+    private final CompletableFuture<Void> loaded;
+
+    // Writer thread only
+    private FileChannel channel;
+    private boolean readOnly;
+    private final ArrayList<MappedByteBuffer> segments;
+    private final CRC32 crc;
+    private long totRecords;
+
+    // Guarded by this, read by the queries
+    private final HashMap<Size, Summary> index;
+    private int totGames;
+
+
+    public Path getPath() { return path; }
+    // Completes once the existing records are in the index
+    public CompletableFuture<Void> getLoaded() { return loaded; }
+    public synchronized int getTotGames() { return totGames; }
+
+
+    public Statistics() {
+        this(DefaultPath());
+    }
+    public Statistics(Path path) {
+        this.path     = path;
+        this.segments = new ArrayList<>();
+        this.crc      = new CRC32();
+        this.index    = new HashMap<>();
+
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loaded = CompletableFuture.runAsync(this::Load, writer);
+    }
+
+    // -Dminesweeper.statistics overrides the file in the home directory
+    public static Path DefaultPath() {
+        String file = System.getProperty("minesweeper.statistics");
+        if (file != null)
+            return Path.of(file);
+        return Path.of(System.getProperty("user.home"), ".minesweeper", "statistics.dat");
+    }
+
+
+
+    // Appends the game on the writer thread, the future completes once it is in the file and in the index
+    public CompletableFuture<Entry> Record(Entry entry) {
+        return loaded.thenApplyAsync(ignored -> Write(entry), writer);
+    }
+
+    // Same as above from the board at the end of a game, with a copy of its cells made off the caller
+    // thread (see Engine.Snapshot). The 3BV is counted on the writer thread
+    public CompletableFuture<Entry> Record(Board board, CompletableFuture<byte[]> cells, int millis, int clicks, boolean won, boolean noGuess) {
+        int rows = board.getTotRows(), cols = board.getTotCols(), mines = board.getTotMines();
+        long seed = board.getSeed(), timestamp = System.currentTimeMillis();
+        return loaded.thenCombine(cells, (ignored, copy) -> copy).thenApplyAsync(copy -> {
+            return Write(new Entry(timestamp, seed, rows, cols, mines, millis,
+                    ThreeBV(copy, rows, cols, false), ThreeBV(copy, rows, cols, true), clicks, won, noGuess));
+        }, writer);
+    }
+
+    public synchronized Summary getSummary(int rows, int cols, int mines) {
+        return index.getOrDefault(new Size(rows, cols, mines), new Summary(0, 0, 0, 0, List.of()));
+    }
+    public Summary getSummary(Difficulty difficulty) {
+        return getSummary(difficulty.getTotRows(), difficulty.getTotCols(), difficulty.getTotMines());
+    }
+
+    // Waits for the pending records to be written, then releases the file
+    public void Close() {
+        writer.execute(() -> {
+            segments.clear();
+            try {
+                if (channel != null)
+                    channel.close();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    // Summaries are replaced rather than changed, so the ones handed out never change
+    private void Add(Entry entry) {
+        Size size = new Size(entry.rows(), entry.cols(), entry.mines());
+        Summary summary = index.getOrDefault(size, new Summary(0, 0, 0, 0, List.of()));
+
+        int streak = entry.won() ? summary.streak() + 1 : 0;
+        List<Entry> best = summary.best();
+        if (entry.won() && (best.size() < TOP || entry.millis() < best.get(best.size() - 1).millis())) {
+            ArrayList<Entry> times = new ArrayList<>(best);
+            int at = 0;
+            while (at < times.size() && times.get(at).millis() <= entry.millis())
+                at++;
+            times.add(at, entry);
+            if (times.size() > TOP)
+                times.remove(TOP);
+            best = List.copyOf(times);
+        }
+
+        index.put(size, new Summary(summary.games() + 1, summary.wins() + (entry.won() ? 1 : 0),
+                streak, Math.max(summary.bestStreak(), streak), best));
+        totGames++;
+    }
+
+
+    // Reads the valid records in order, the first bad one marks the end of the log
+    private void Load() {
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Held until the channel is closed, another game running meanwhile only reads the file
+            if (!Lock()) {
+                channel.close();
+                channel  = FileChannel.open(path, StandardOpenOption.READ);
+                readOnly = true;
+                if (channel.size() < RECORD_SIZE)
+                    return;
+            }
+
+            MappedByteBuffer header = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, RECORD_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) == 0) {
+                // A new file, left to the game that writes it
+                if (readOnly)
+                    return;
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, RECORD_SIZE);
+                header.force();
+            }
+            else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+                throw new IOException("Not a statistics file: " + path);
+            }
+
+            long available = (channel.size() - RECORD_SIZE) / RECORD_SIZE;
+            ArrayList<Entry> entries = new ArrayList<>();
+            while (totRecords < available) {
+                MappedByteBuffer segment = Segment(totRecords);
+                Entry entry = Read(segment, Offset(totRecords));
+                if (entry == null)
+                    break;
+                entries.add(entry);
+                totRecords++;
+            }
+
+            synchronized (this) {
+                for (Entry entry : entries)
+                    Add(entry);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean Lock() throws IOException {
+        try {
+            return channel.tryLock() != null;
+        }
+        catch (OverlappingFileLockException e) {
+            // Locked by another instance in this same process
+            return false;
+        }
+    }
+
+    private Entry Write(Entry entry) {
+        if (readOnly)
+            throw new UncheckedIOException(new IOException("The statistics are in use by another game: " + path));
+        Append(entry);
+        synchronized (this) {
+            Add(entry);
+        }
+        return entry;
+    }
+    private void Append(Entry entry) {
+        MappedByteBuffer segment = Segment(totRecords);
+        int offset = Offset(totRecords);
+
+        segment.putLong(offset,      entry.timestamp());
+        segment.putLong(offset + 8,  entry.seed());
+        segment.putInt(offset + 16,  entry.rows());
+        segment.putInt(offset + 20,  entry.cols());
+        segment.putInt(offset + 24,  entry.mines());
+        segment.putInt(offset + 28,  entry.millis());
+        segment.putInt(offset + 32,  entry.bbbv());
+        segment.putInt(offset + 36,  entry.bbbvSolved());
+        segment.putInt(offset + 40,  entry.clicks());
+        Difficulty difficulty = entry.getDifficulty();
+        segment.put(offset + 44, (byte) ((difficulty != null) ? difficulty.ordinal() : -1));
+        segment.put(offset + 45, (byte) ((entry.won() ? 1 : 0) | (entry.noGuess() ? 2 : 0)));
+        // The checksum goes in last: until it is there the record does not exist
+        segment.putInt(offset + CRC_OFFSET, Checksum(segment, offset));
+        segment.force(offset, RECORD_SIZE);
+        totRecords++;
+    }
+    private Entry Read(MappedByteBuffer segment, int offset) {
+        if (segment.getInt(offset + CRC_OFFSET) != Checksum(segment, offset))
+            return null;
+
+        int flags = segment.get(offset + 45);
+        return new Entry(segment.getLong(offset), segment.getLong(offset + 8),
+                segment.getInt(offset + 16), segment.getInt(offset + 20), segment.getInt(offset + 24),
+                segment.getInt(offset + 28), segment.getInt(offset + 32), segment.getInt(offset + 36),
+                segment.getInt(offset + 40), (flags & 1) != 0, (flags & 2) != 0);
+    }
+    private int Checksum(MappedByteBuffer segment, int offset) {
+        crc.reset();
+        crc.update(segment.slice(offset, CRC_OFFSET));
+        // Never 0, so that the zeros past the end of the log are not a valid record
+        return (int) crc.getValue() | 1;
+    }
+
+    // Record r lives after the header, in segments mapped as the log grows
+    private static int Offset(long record) {
+        return (int) (record % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    }
+    private MappedByteBuffer Segment(long record) {
+        int index = (int) (record / RECORDS_PER_SEGMENT);
+        try {
+            while (segments.size() <= index) {
+                long position = RECORD_SIZE + (long) segments.size() * RECORDS_PER_SEGMENT * RECORD_SIZE;
+                long size = (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+                // A file only read cannot grow, its last segment stops at its end
+                MappedByteBuffer segment = readOnly
+                        ? channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size, channel.size() - position))
+                        : channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments.add(segment);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segments.get(index);
+    }
+
+
+    // 3BV of the board: clicks needed to clear it without flags, one per opening and one per number
+    // no opening reveals. With onlyShown, the part of it already done
+    static int ThreeBV(byte[] cells, int rows, int cols, boolean onlyShown) {
+        boolean[] counted = new boolean[cells.length];
+        int[] stack = new int[64];
+        int bbbv = 0;
+
+        // Openings: the zeros connected through each other, with the numbers around them
+        for (int start = 0; start < cells.length; start++) {
+            if (counted[start] || !IsZero(cells[start]))
+                continue;
+
+            boolean shown = false;
+            int size = 0;
+            stack[size++] = start;
+            counted[start] = true;
+            while (size > 0) {
+                int index = stack[--size];
+                shown |= IsShown(cells[index]);
+                if (!IsZero(cells[index]))
+                    continue;
+
+                int r = index / cols, c = index % cols;
+                for (int i = Math.max(r - 1, 0); i <= Math.min(r + 1, rows - 1); i++) {
+                    for (int j = Math.max(c - 1, 0); j <= Math.min(c + 1, cols - 1); j++) {
+                        int next = i * cols + j;
+                        if (counted[next])
+                            continue;
+                        counted[next] = true;
+                        if (size == stack.length)
+                            stack = Arrays.copyOf(stack, size * 2);
+                        stack[size++] = next;
+                    }
+                }
+            }
+            if (!onlyShown || shown)
+                bbbv++;
+        }
+
+        // Numbers out of every opening
+        for (int index = 0; index < cells.length; index++) {
+            if (!counted[index] && (cells[index] & Board.MINE_BIT) == 0 && (!onlyShown || IsShown(cells[index])))
+                bbbv++;
+        }
+        return bbbv;
+    }
+    private static boolean IsZero(byte cell) {
+        return (cell & (Board.MINE_BIT | Board.NEAR_MINES_MASK)) == 0;
+    }
+    private static boolean IsShown(byte cell) {
+        return ((cell & Board.STATE_MASK) >>> Board.STATE_SHIFT) == Board.State.SHOWN.ordinal();
+    }
+}
@@ -0,0 +1,59 @@
+package com.tonidotpy.minesweeper;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// The adders of NearMines on as many words at a time as the CPU vectors hold, only loaded when
+// jdk.incubator.vector is in the module graph. The word on each side of a vector is read with an
+// unaligned load one word off, which the guard words of the bitboard make always valid
+final class VectorNearMines extends NearMines {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private final NearMines scalar = new NearMines.Scalar();
+
+
+    @Override
+    String getName() { return "vector " + SPECIES.length() + "x64"; }
+
+    @Override
+    void Planes(long[] bits, int up, int mid, int down, int from, int to, long[] p0, long[] p1, long[] p2, long[] p3) {
+        int i = from, bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            LongVector n = LongVector.fromArray(SPECIES, bits, up + i);
+            LongVector s = LongVector.fromArray(SPECIES, bits, down + i);
+            LongVector x = LongVector.fromArray(SPECIES, bits, mid + i);
+            LongVector nw = ShiftLeft(n, LongVector.fromArray(SPECIES, bits, up + i - 1));
+            LongVector ne = ShiftRight(n, LongVector.fromArray(SPECIES, bits, up + i + 1));
+            LongVector sw = ShiftLeft(s, LongVector.fromArray(SPECIES, bits, down + i - 1));
+            LongVector se = ShiftRight(s, LongVector.fromArray(SPECIES, bits, down + i + 1));
+            LongVector w  = ShiftLeft(x, LongVector.fromArray(SPECIES, bits, mid + i - 1));
+            LongVector e  = ShiftRight(x, LongVector.fromArray(SPECIES, bits, mid + i + 1));
+
+            LongVector s1 = n.lanewise(VectorOperators.XOR, nw).lanewise(VectorOperators.XOR, ne);
+            LongVector c1 = n.and(nw).or(ne.and(n.lanewise(VectorOperators.XOR, nw)));
+            LongVector s2 = s.lanewise(VectorOperators.XOR, sw).lanewise(VectorOperators.XOR, se);
+            LongVector c2 = s.and(sw).or(se.and(s.lanewise(VectorOperators.XOR, sw)));
+            LongVector s3 = w.lanewise(VectorOperators.XOR, e);
+            LongVector c3 = w.and(e);
+            LongVector ones = s1.lanewise(VectorOperators.XOR, s2).lanewise(VectorOperators.XOR, s3);
+            LongVector c4 = s1.and(s2).or(s3.and(s1.lanewise(VectorOperators.XOR, s2)));
+            LongVector t1 = c1.lanewise(VectorOperators.XOR, c2).lanewise(VectorOperators.XOR, c3);
+            LongVector d1 = c1.and(c2).or(c3.and(c1.lanewise(VectorOperators.XOR, c2)));
+            LongVector twos = t1.lanewise(VectorOperators.XOR, c4);
+            LongVector d2 = t1.and(c4);
+
+            ones.intoArray(p0, i);
+            twos.intoArray(p1, i);
+            d1.lanewise(VectorOperators.XOR, d2).intoArray(p2, i);
+            d1.and(d2).intoArray(p3, i);
+        }
+        scalar.Planes(bits, up, mid, down, i, to, p0, p1, p2, p3);
+    }
+
+    private static LongVector ShiftLeft(LongVector words, LongVector previous) {
+        return words.lanewise(VectorOperators.LSHL, 1).or(previous.lanewise(VectorOperators.LSHR, 63));
+    }
+    private static LongVector ShiftRight(LongVector words, LongVector next) {
+        return words.lanewise(VectorOperators.LSHR, 1).or(next.lanewise(VectorOperators.LSHL, 63));
+    }
+}
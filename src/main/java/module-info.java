@@ -1,6 +1,8 @@
 module com.tonidotpy.minesweeper {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.jfr;
+    requires static jdk.incubator.vector;
 
 
     opens com.tonidotpy.minesweeper to javafx.fxml;
@@ -0,0 +1,97 @@
+package com.tonidotpy.minesweeper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardFileTest {
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void RoundTripsBoardsInPlay() throws IOException {
+        // Sizes whose cells are not a multiple of the 8 and 4 cells packed in a byte of each layer
+        int[][] sizes = { {9, 9, 10}, {16, 30, 99}, {7, 13, 20}, {3, 3, 1}, {33, 65, 400} };
+        SplittableRandom random = new SplittableRandom(5);
+        for (int[] size : sizes) {
+            Board board = new Board(size[0], size[1], size[2], random.nextLong());
+            board.Click(size[0] / 2, size[1] / 2);
+            for (int i = 0; i < board.getTotCells() / 4; i++)
+                board.ToggleState(random.nextInt(size[0]), random.nextInt(size[1]));
+
+            AssertSame(board, WriteAndRead(board));
+        }
+    }
+
+    @Test
+    void RoundTripsALostBoard() throws IOException {
+        Board board = new Board(16, 30, 99, 42);
+        board.Click(8, 15);
+        for (int i = 0; i < board.getTotCells() && !board.isLost(); i++) {
+            if (board.CanBeShown(i / 30, i % 30) && board.isMine(i / 30, i % 30))
+                board.Click(i / 30, i % 30);
+        }
+        assertTrue(board.isLost());
+
+        Board read = WriteAndRead(board);
+        AssertSame(board, read);
+        assertTrue(read.isLost());
+    }
+
+    @Test
+    void RoundTripsABoardNotGenerated() throws IOException {
+        Board board = new Board(9, 9, 10, 7);
+        board.ToggleState(0, 0);
+
+        Board read = WriteAndRead(board);
+        AssertSame(board, read);
+        assertFalse(read.isGenerated());
+        assertEquals(-1, read.getFirstRow());
+    }
+
+    @Test
+    void RejectsOtherFiles() throws IOException {
+        Path path = directory.resolve("other.msb");
+        Files.write(path, new byte[64]);
+        assertThrows(IOException.class, () -> BoardFile.Read(path));
+    }
+
+    @Test
+    void SameSeedAndFirstClickGiveTheSameLayout() {
+        Board first = new Board(16, 30, 99, 1234), second = new Board(16, 30, 99, 1234);
+        first.Click(3, 4);
+        second.Click(3, 4);
+        assertArrayEquals(first.getCells(), second.getCells());
+    }
+
+
+    private Board WriteAndRead(Board board) throws IOException {
+        Path path = directory.resolve("board.msb");
+        BoardFile.Write(board, path);
+        return BoardFile.Read(path);
+    }
+
+    private static void AssertSame(Board expected, Board actual) {
+        assertEquals(expected.getTotRows(), actual.getTotRows());
+        assertEquals(expected.getTotCols(), actual.getTotCols());
+        assertEquals(expected.getTotMines(), actual.getTotMines());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getFirstRow(), actual.getFirstRow());
+        assertEquals(expected.getFirstCol(), actual.getFirstCol());
+        assertEquals(expected.getTotCellShown(), actual.getTotCellShown());
+        assertEquals(expected.getTotFlags(), actual.getTotFlags());
+        assertEquals(expected.getTotQuestionMarks(), actual.getTotQuestionMarks());
+        assertArrayEquals(expected.getCells(), actual.getCells());
+    }
+}
@@ -0,0 +1,34 @@
+package com.tonidotpy.minesweeper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The game replaces the journal of a board on every new game, detaching the old one first
+class JournalFollowerTest {
+    @Test
+    void KeepsASingleListenerAcrossNewGames() {
+        Board board = new Board(9, 9, 10, 1);
+        int[] changes = new int[1];
+        JournalFollower follower = new JournalFollower(() -> changes[0]++);
+
+        Journal journal = new Journal(board);
+        follower.Follow(journal);
+        int listeners = board.getTotListeners();
+        for (int game = 0; game < 20; game++) {
+            board.Reset(game);
+            journal.Detach();
+            journal = new Journal(board);
+            follower.Follow(journal);
+            assertEquals(listeners, board.getTotListeners());
+        }
+
+        changes[0] = 0;
+        board.ToggleState(0, 0);
+        assertEquals(1, changes[0]);
+
+        journal.Detach();
+        follower.Follow(null);
+        assertEquals(0, board.getTotListeners());
+    }
+}
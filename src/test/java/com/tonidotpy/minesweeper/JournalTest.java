@@ -0,0 +1,171 @@
+package com.tonidotpy.minesweeper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void ReadJournalSeeksToEveryPosition() throws IOException {
+        // Wide enough for distances of several varint bytes both ways, long enough for snapshots
+        Board board = new Board(200, 300, 12000, 11);
+        Journal journal = new Journal(board);
+        ArrayList<byte[]> positions = Play(board, journal, new SplittableRandom(2), 400);
+        assertTrue(journal.getTotMoves() > 128);
+
+        Path path = directory.resolve("game.msr");
+        journal.Write(path);
+        Journal read = Journal.Read(path);
+        assertEquals(journal.getTotMoves(), read.getTotMoves());
+
+        Board replayed = read.NewBoard();
+        read.Attach(replayed);
+        assertEquals(board.getSeed(), replayed.getSeed());
+
+        // In order, backwards and at random, so that both the snapshots and the moves after them are used
+        for (int p = 0; p < positions.size(); p++)
+            AssertPosition(read, replayed, positions, p);
+        for (int p = positions.size() - 1; p >= 0; p--)
+            AssertPosition(read, replayed, positions, p);
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 200; i++)
+            AssertPosition(read, replayed, positions, random.nextInt(positions.size()));
+    }
+
+    @Test
+    void UndoAndRedoMoveOnePositionAtATime() {
+        Board board = new Board(16, 30, 99, 21);
+        Journal journal = new Journal(board);
+        ArrayList<byte[]> positions = Play(board, journal, new SplittableRandom(4), 150);
+
+        int position = journal.getPosition();
+        while (journal.Undo()) {
+            position--;
+            assertArrayEquals(positions.get(position), board.getCells());
+        }
+        assertEquals(0, position);
+        assertFalse(journal.CanUndo());
+
+        while (journal.Redo())
+            assertArrayEquals(positions.get(++position), board.getCells());
+        assertEquals(journal.getTotMoves(), position);
+    }
+
+    @Test
+    void MoveAfterUndoReplacesTheRest() {
+        Board board = new Board(9, 9, 10, 5);
+        Journal journal = new Journal(board);
+        for (int c = 0; c < 6; c++)
+            board.ToggleState(0, c);
+
+        journal.Seek(2);
+        board.ToggleState(8, 8);
+        assertEquals(3, journal.getTotMoves());
+        assertFalse(journal.CanRedo());
+        assertTrue(board.isFlag(8, 8));
+        assertFalse(board.isFlag(0, 2));
+    }
+
+    @Test
+    void ReplayRebuildsThePositionOnAnotherBoard() {
+        Board board = new Board(30, 40, 240, 8);
+        Journal journal = new Journal(board);
+        ArrayList<byte[]> positions = Play(board, journal, new SplittableRandom(6), 300);
+
+        SplittableRandom random = new SplittableRandom(7);
+        Board other = new Board(30, 40, 240, 0);
+        for (int i = 0; i < 50; i++) {
+            int p = random.nextInt(positions.size());
+            journal.Seek(p);
+            journal.getReplay().ApplyTo(other);
+            assertArrayEquals(positions.get(p), other.getCells());
+        }
+    }
+
+    @Test
+    void NearbyMovesTakeOneByteEach() throws IOException {
+        Board board = new Board(9, 9, 10, 1);
+        Journal journal = new Journal(board);
+        for (int i = 0; i < 40; i++)
+            board.ToggleState(i / 9, i % 9);
+
+        Path path = directory.resolve("near.msr");
+        journal.Write(path);
+        // Magic, version, rows, cols, mines, seed and count
+        long header = 4 + 1 + 1 + 1 + 1 + 8 + 1;
+        assertEquals(header + 40, Files.size(path));
+    }
+
+    @Test
+    void RejectsBrokenFiles() throws IOException {
+        Board board = new Board(16, 30, 99, 9);
+        Journal journal = new Journal(board);
+        Play(board, journal, new SplittableRandom(8), 50);
+        Path path = directory.resolve("broken.msr");
+        journal.Write(path);
+
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> Journal.Read(path));
+
+        bytes[0] ^= 1;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> Journal.Read(path));
+    }
+
+
+    // Random reveals and toggles, far apart and next to each other, until the game is won or runs out of
+    // moves. Returns the cells at each position of the journal, from the new board on
+    private static ArrayList<byte[]> Play(Board board, Journal journal, SplittableRandom random, int maxMoves) {
+        int rows = board.getTotRows(), cols = board.getTotCols();
+        ArrayList<byte[]> positions = new ArrayList<>();
+        positions.add(board.getCells().clone());
+
+        int row = rows / 2, col = cols / 2;
+        board.Click(row, col);
+        positions.add(board.getCells().clone());
+        while (journal.getTotMoves() < maxMoves && !board.isLost() && !board.isWon()) {
+            if (random.nextInt(4) == 0) {
+                row = random.nextInt(rows);
+                col = random.nextInt(cols);
+            }
+            else {
+                row = Math.max(0, Math.min(rows - 1, row + random.nextInt(3) - 1));
+                col = Math.max(0, Math.min(cols - 1, col + random.nextInt(3) - 1));
+            }
+
+            int before = journal.getTotMoves();
+            // Only safe cells are revealed and there are no chords, which may hit a misplaced flag
+            if (random.nextInt(3) == 0 && board.CanBeShown(row, col) && !board.isMine(row, col))
+                board.Click(row, col);
+            else
+                board.ToggleState(row, col);
+            if (journal.getTotMoves() > before)
+                positions.add(board.getCells().clone());
+        }
+        assertEquals(journal.getTotMoves() + 1, positions.size());
+        return positions;
+    }
+
+    private static void AssertPosition(Journal journal, Board board, ArrayList<byte[]> positions, int position) {
+        journal.Seek(position);
+        assertEquals(position, journal.getPosition());
+        assertArrayEquals(positions.get(position), board.getCells(), "position " + position);
+    }
+}
@@ -0,0 +1,99 @@
+package com.tonidotpy.minesweeper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The bit sliced counts of both paths against a plain count over the neighbours of every cell.
+// The build runs the tests with the vector module, so getInstance is the vector path there
+class NearMinesTest {
+    // Widths around the word and vector boundaries, and a few odd ones
+    private static final int[] COLS = { 1, 2, 7, 8, 9, 30, 63, 64, 65, 127, 128, 129, 200, 257, 513 };
+
+
+    @Test
+    void ScalarPathMatchesThePlainCount() {
+        AssertMatches(new NearMines.Scalar());
+    }
+
+    @Test
+    void SelectedPathMatchesThePlainCount() {
+        AssertMatches(NearMines.getInstance());
+    }
+
+    @Test
+    void VectorPathIsSelectedWithItsModule() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            assertTrue(NearMines.getInstance().getName().startsWith("vector"));
+    }
+
+    @Test
+    void GatherTakesTheMineBits() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int cols : COLS) {
+            byte[] cells = RandomCells(random, 11, cols, 0.3);
+            Bitboard mines = new Bitboard(11, cols);
+            NearMines.Gather(cells, mines);
+            for (int i = 0; i < cells.length; i++)
+                assertEquals((cells[i] & Board.MINE_BIT) != 0, mines.Get(i), "cell " + i + " of width " + cols);
+        }
+    }
+
+
+    private static void AssertMatches(NearMines nearMines) {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int cols : COLS) {
+            for (int rows : new int[] { 1, 2, 3, 17 }) {
+                for (double density : new double[] { 0.0, 0.2, 0.5, 1.0 }) {
+                    byte[] cells = RandomCells(random, rows, cols, density);
+                    byte[] expected = PlainCount(cells, rows, cols);
+
+                    // The cells keep their state and exploded bits, stale counts get overwritten
+                    Bitboard mines = new Bitboard(rows, cols);
+                    NearMines.Gather(cells, mines);
+                    for (int i = 0; i < cells.length; i++)
+                        cells[i] = (byte) ((cells[i] & 0xE0) | random.nextInt(16));
+                    nearMines.Calculate(cells, mines);
+
+                    assertArrayEquals(expected, cells, nearMines.getName() + " on " + rows + "x" + cols + " at " + density);
+                }
+            }
+        }
+    }
+
+    // Mine bits at the given density, random state and exploded bits, no counts
+    private static byte[] RandomCells(SplittableRandom random, int rows, int cols, double density) {
+        byte[] cells = new byte[rows * cols];
+        for (int i = 0; i < cells.length; i++) {
+            int cell = random.nextInt(4) << Board.STATE_SHIFT | (random.nextInt(8) == 0 ? Board.EXPLODED_BIT : 0);
+            if (random.nextDouble() < density)
+                cell |= Board.MINE_BIT;
+            cells[i] = (byte) cell;
+        }
+        return cells;
+    }
+
+    // Mines keep a zero count, as on a generated board
+    private static byte[] PlainCount(byte[] cells, int rows, int cols) {
+        byte[] counted = new byte[cells.length];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int index = r * cols + c, cell = cells[index] & 0xF0;
+                if ((cell & Board.MINE_BIT) == 0) {
+                    for (int i = Math.max(r - 1, 0); i <= Math.min(r + 1, rows - 1); i++) {
+                        for (int j = Math.max(c - 1, 0); j <= Math.min(c + 1, cols - 1); j++) {
+                            if ((cells[i * cols + j] & Board.MINE_BIT) != 0)
+                                cell++;
+                        }
+                    }
+                }
+                counted[index] = (byte) cell;
+            }
+        }
+        return counted;
+    }
+}
@@ -0,0 +1,115 @@
+package com.tonidotpy.minesweeper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every hidden cell against the share of the layouts that agree with the numbers and have it as a mine,
+// on boards small enough to enumerate all of them. Each game is played to its end through the best
+// guess, so the cached components are checked too
+class ProbabilitiesTest {
+    private static final double EPSILON = 1e-9;
+
+
+    @Test
+    void MatchesEveryLayoutOnSmallBoards() {
+        SplittableRandom random = new SplittableRandom(1);
+        int[][] sizes = { {4, 5, 4}, {4, 6, 5}, {5, 5, 6}, {3, 8, 5} };
+        for (int[] size : sizes) {
+            for (int game = 0; game < 40; game++)
+                Play(new Board(size[0], size[1], size[2], random.nextLong()), random);
+        }
+    }
+
+
+    private static void Play(Board board, SplittableRandom random) {
+        int rows = board.getTotRows(), cols = board.getTotCols();
+        board.Click(random.nextInt(rows), random.nextInt(cols));
+        Probabilities probabilities = new Probabilities(board);
+        while (!board.isLost() && !board.isWon()) {
+            Probabilities.Result result = probabilities.Calculate();
+            double[] expected = Enumerate(board);
+
+            double bestFrontier = 1.0;
+            for (int i = 0; i < expected.length; i++) {
+                if (board.isShown(i / cols, i % cols))
+                    continue;
+                assertEquals(expected[i], result.getProbability(i), EPSILON, "cell " + i + " of seed " + board.getSeed());
+                if (result.isFrontier(i))
+                    bestFrontier = Math.min(bestFrontier, expected[i]);
+            }
+
+            int best = result.getBest();
+            if (best >= 0) {
+                assertTrue(result.isFrontier(best));
+                assertEquals(bestFrontier, expected[best], EPSILON);
+            }
+            else {
+                best = random.nextInt(board.getTotCells());
+                while (board.isShown(best / cols, best % cols))
+                    best = (best + 1) % board.getTotCells();
+            }
+            board.Click(best / cols, best % cols);
+        }
+    }
+
+    // Mine probability of each hidden cell over all the layouts of the remaining mines
+    private static double[] Enumerate(Board board) {
+        int cols = board.getTotCols();
+        ArrayList<Integer> hidden = new ArrayList<>();
+        for (int i = 0; i < board.getTotCells(); i++) {
+            if (!board.isShown(i / cols, i % cols))
+                hidden.add(i);
+        }
+
+        double[] mines = new double[board.getTotCells()];
+        boolean[] layout = new boolean[board.getTotCells()];
+        long total = Enumerate(board, hidden, 0, board.getTotMines(), layout, mines);
+        for (int i = 0; i < mines.length; i++)
+            mines[i] /= total;
+        return mines;
+    }
+    private static long Enumerate(Board board, ArrayList<Integer> hidden, int from, int left, boolean[] layout, double[] mines) {
+        if (left == 0) {
+            if (!Agrees(board, layout))
+                return 0;
+            for (int index : hidden) {
+                if (layout[index])
+                    mines[index]++;
+            }
+            return 1;
+        }
+
+        long total = 0;
+        for (int k = from; k <= hidden.size() - left; k++) {
+            layout[hidden.get(k)] = true;
+            total += Enumerate(board, hidden, k + 1, left - 1, layout, mines);
+            layout[hidden.get(k)] = false;
+        }
+        return total;
+    }
+    private static boolean Agrees(Board board, boolean[] layout) {
+        int rows = board.getTotRows(), cols = board.getTotCols();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (!board.isShown(r, c))
+                    continue;
+
+                int near = 0;
+                for (int i = Math.max(r - 1, 0); i <= Math.min(r + 1, rows - 1); i++) {
+                    for (int j = Math.max(c - 1, 0); j <= Math.min(c + 1, cols - 1); j++) {
+                        if (layout[i * cols + j])
+                            near++;
+                    }
+                }
+                if (near != board.getTotNearMines(r, c))
+                    return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+package com.tonidotpy.minesweeper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The deductions of the solver against the mines of the board, over games played through its hints.
+// One solver follows each board across its resets, as it does in the game
+class SolverTest {
+    @Test
+    void DeductionsAreAlwaysRight() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (Difficulty difficulty : Difficulty.values()) {
+            Board board = new Board(difficulty.getTotRows(), difficulty.getTotCols(), difficulty.getTotMines(), random.nextLong());
+            Solver solver = new Solver(board);
+            for (int game = 0; game < 30; game++) {
+                board.Reset(random.nextLong());
+                board.Click(board.getTotRows() / 2, board.getTotCols() / 2);
+                Play(board, solver, random);
+            }
+            solver.Detach();
+        }
+    }
+
+    @Test
+    void SafeHintsAreNeverMines() {
+        SplittableRandom random = new SplittableRandom(2);
+        int safeMoves = 0;
+        for (int game = 0; game < 50; game++) {
+            Board board = new Board(16, 16, 40, random.nextLong());
+            Solver solver = new Solver(board);
+            board.Click(8, 8);
+            while (!board.isLost() && !board.isWon()) {
+                Solver.Hint hint = solver.getHint();
+                if (!hint.isSafe())
+                    break;
+                int guess = hint.getGuess();
+                assertEquals(hint.getSafe()[0], guess);
+                assertFalse(board.isMine(guess / 16, guess % 16));
+                board.Click(guess / 16, guess % 16);
+                safeMoves++;
+            }
+            assertFalse(board.isLost());
+        }
+        assertTrue(safeMoves > 0);
+    }
+
+
+    private static void Play(Board board, Solver solver, SplittableRandom random) {
+        int cols = board.getTotCols();
+        while (!board.isLost() && !board.isWon()) {
+            Solver.Hint hint = solver.getHint();
+            for (int index : hint.getSafe())
+                assertFalse(board.isMine(index / cols, index % cols), "safe cell " + index + " of seed " + board.getSeed());
+            for (int index : hint.getMines())
+                assertTrue(board.isMine(index / cols, index % cols), "mine " + index + " of seed " + board.getSeed());
+            for (int i = 0; i < board.getTotCells(); i++) {
+                if (solver.isSafe(i / cols, i % cols))
+                    assertFalse(board.isMine(i / cols, i % cols));
+                if (solver.isMine(i / cols, i % cols))
+                    assertTrue(board.isMine(i / cols, i % cols));
+            }
+
+            int guess = hint.getGuess();
+            if (guess < 0) {
+                guess = random.nextInt(board.getTotCells());
+                while (!board.CanBeShown(guess / cols, guess % cols))
+                    guess = (guess + 1) % board.getTotCells();
+            }
+            board.Click(guess / cols, guess % cols);
+        }
+    }
+}